@@ -1,13 +1,17 @@
 package com.upgrad.stackoverflow.api.config;
 
+import com.upgrad.stackoverflow.service.common.AuthenticatedUser;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
+import springfox.documentation.service.ApiKey;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import java.util.Collections;
+
 /**
  * This Configuration integrates Swagger2 into the existing Spring Boot project.
  */
@@ -21,6 +25,8 @@ public class SwaggerConfiguration {
         return new Docket(DocumentationType.SWAGGER_2)
                 .select()
                 .apis(RequestHandlerSelectors.basePackage("com.upgrad.stackoverflow.api.controller"))
-                .paths(PathSelectors.any()).build();
+                .paths(PathSelectors.any()).build()
+                .ignoredParameterTypes(AuthenticatedUser.class)
+                .securitySchemes(Collections.singletonList(new ApiKey("authorization", "authorization", "header")));
     }
 }
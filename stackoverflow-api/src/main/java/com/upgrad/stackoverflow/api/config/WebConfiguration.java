@@ -0,0 +1,34 @@
+package com.upgrad.stackoverflow.api.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.stackoverflow.api.security.AuthenticatedUserArgumentResolver;
+import com.upgrad.stackoverflow.api.security.AuthenticationFilter;
+import com.upgrad.stackoverflow.service.business.AuthenticationBusinessService;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * This Configuration registers the authentication filter for every endpoint which requires a signed in user
+ * and the argument resolver which hands the signed in user to the controllers.
+ */
+
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    @Bean
+    public FilterRegistrationBean<AuthenticationFilter> authenticationFilter(AuthenticationBusinessService authenticationBusinessService, ObjectMapper objectMapper) {
+        FilterRegistrationBean<AuthenticationFilter> registration = new FilterRegistrationBean<>(new AuthenticationFilter(authenticationBusinessService, objectMapper));
+        registration.addUrlPatterns("/question/*", "/answer/*", "/userprofile/*", "/admin/*", "/user/sessions");
+        return registration;
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new AuthenticatedUserArgumentResolver());
+    }
+}
@@ -2,18 +2,20 @@ package com.upgrad.stackoverflow.api.controller;
 
 import com.upgrad.stackoverflow.api.model.*;
 import com.upgrad.stackoverflow.service.business.AnswerBusinessService;
+import com.upgrad.stackoverflow.service.common.AuthenticatedUser;
 import com.upgrad.stackoverflow.service.entity.AnswerEntity;
 import com.upgrad.stackoverflow.service.entity.QuestionEntity;
 import com.upgrad.stackoverflow.service.exception.AnswerNotFoundException;
 import com.upgrad.stackoverflow.service.exception.AuthorizationFailedException;
 import com.upgrad.stackoverflow.service.exception.InvalidQuestionException;
+import com.upgrad.stackoverflow.service.projection.QuestionAnswers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import javax.persistence.TypedQuery;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,13 +36,12 @@ public class AnswerController {
      *
      * @param answerRequest - This argument contains all the attributes required to store answer details in the database.
      * @param questionId    - The uuid of the question whose answer is to be posted in the database.
-     * @param authorization - A field in the request header which contains the JWT token.
+     * @param user          - The signed in user, resolved from the JWT token in the authorization header.
      * @return - ResponseEntity<AnswerResponse> type object along with Http status CREATED.
-     * @throws AuthorizationFailedException
      * @throws InvalidQuestionException
      */
     @PostMapping("/question/{questionId}/answer/create")
-    public ResponseEntity<AnswerResponse> postAnswer(@RequestBody AnswerRequest answerRequest, @RequestHeader String authorization, @PathVariable String questionId) throws AuthorizationFailedException, InvalidQuestionException
+    public ResponseEntity<AnswerResponse> postAnswer(@RequestBody AnswerRequest answerRequest, AuthenticatedUser user, @PathVariable String questionId) throws InvalidQuestionException
     {
         AnswerEntity answerEntity=new AnswerEntity();
         answerEntity.setUuid(UUID.randomUUID().toString());
@@ -48,7 +49,7 @@ public class AnswerController {
         answerEntity.setDate(ZonedDateTime.now());
         QuestionEntity questionEntity = answerBusinessService.getQuestionByUuid(questionId);
         answerEntity.setQuestion(questionEntity);
-        AnswerEntity answerEntity1 = answerBusinessService.createAnswer(answerEntity,authorization);
+        AnswerEntity answerEntity1 = answerBusinessService.createAnswer(answerEntity,user);
         AnswerResponse answerResponse = new AnswerResponse().id(answerEntity1.getUuid()).status("Answer Created");
         return new ResponseEntity<AnswerResponse>(answerResponse, HttpStatus.CREATED);
     }
@@ -57,17 +58,17 @@ public class AnswerController {
      *
      * @param answerEditRequest - This argument contains all the attributes required to store edited answer details in the database.
      * @param answerId          - The uuid of the answer to be edited in the database.
-     * @param authorization     - A field in the request header which contains the JWT token.
+     * @param user              - The signed in user, resolved from the JWT token in the authorization header.
      * @return - ResponseEntity<AnswerEditResponse> type object along with Http status OK.
      * @throws AuthorizationFailedException
      * @throws AnswerNotFoundException
      */
     @PutMapping("/answer/edit/{answerId}")
-    public ResponseEntity<AnswerEditResponse> editAnswer(@RequestBody AnswerEditRequest answerEditRequest, @RequestHeader String authorization, @PathVariable String answerId) throws AuthorizationFailedException, AnswerNotFoundException
+    public ResponseEntity<AnswerEditResponse> editAnswer(@RequestBody AnswerEditRequest answerEditRequest, AuthenticatedUser user, @PathVariable String answerId) throws AuthorizationFailedException, AnswerNotFoundException
     {
         AnswerEntity answerEntity=new AnswerEntity();
         answerEntity.setAns(answerEditRequest.getContent());
-        AnswerEntity answerEntity1 = answerBusinessService.editAnswerContent(answerEntity,  answerId,  authorization);
+        AnswerEntity answerEntity1 = answerBusinessService.editAnswerContent(answerEntity,  answerId,  user);
         AnswerEditResponse answerEditResponse =new AnswerEditResponse().id(answerEntity1.getUuid()).status("Answer Edited");
         return new ResponseEntity<AnswerEditResponse>(answerEditResponse, HttpStatus.OK);
     }
@@ -75,15 +76,15 @@ public class AnswerController {
      * A controller method to delete an answer in the database.
      *
      * @param answerId      - The uuid of the answer to be deleted in the database.
-     * @param authorization - A field in the request header which contains the JWT token.
+     * @param user          - The signed in user, resolved from the JWT token in the authorization header.
      * @return - ResponseEntity<AnswerDeleteResponse> type object along with Http status OK.
      * @throws AuthorizationFailedException
      * @throws AnswerNotFoundException
      */
     @DeleteMapping("/answer/delete/{answerId}")
-    public ResponseEntity<AnswerDeleteResponse> deleteAnswer(@PathVariable String answerId, @RequestHeader("authorization") String authorization) throws AuthorizationFailedException, AnswerNotFoundException
+    public ResponseEntity<AnswerDeleteResponse> deleteAnswer(@PathVariable String answerId, AuthenticatedUser user) throws AuthorizationFailedException, AnswerNotFoundException
     {
-        AnswerEntity answerEntity = answerBusinessService.deleteAnswer(answerId, authorization);
+        AnswerEntity answerEntity = answerBusinessService.deleteAnswer(answerId, user);
         AnswerDeleteResponse answerDeleteResponse = new AnswerDeleteResponse().id(answerEntity.getUuid()).status("Answer Deleted");
         return new ResponseEntity<AnswerDeleteResponse>(answerDeleteResponse,HttpStatus.OK);
     }
@@ -92,21 +93,26 @@ public class AnswerController {
      * A controller method to fetch all the answers for a specific question in the database.
      *
      * @param questionId    - The uuid of the question whose answers are to be fetched from the database.
-     * @param authorization - A field in the request header which contains the JWT token.
-     * @return - ResponseEntity<List<AnswerDetailsResponse>> type object along with Http status OK.
-     * @throws AuthorizationFailedException
+     * @param user          - The signed in user, resolved from the JWT token in the authorization header.
+     * @param webRequest    - The web request, checked against the entity tag of the answers to the question.
+     * @return - ResponseEntity<List<AnswerDetailsResponse>> type object along with Http status OK, or Http status NOT_MODIFIED if the answers match If-None-Match.
      * @throws InvalidQuestionException
      */
     @GetMapping("/answer/all/{questionId}")
-    public ResponseEntity<List<AnswerDetailsResponse>> getAllByquestionId(@PathVariable String questionId, @RequestHeader("auhtorization") String authorization) throws AuthorizationFailedException, InvalidQuestionException
+    public ResponseEntity<List<AnswerDetailsResponse>> getAllByquestionId(@PathVariable String questionId, AuthenticatedUser user, WebRequest webRequest) throws InvalidQuestionException
     {
-        TypedQuery<AnswerEntity> answerList = answerBusinessService.getAnswersByQuestion(questionId, authorization);
-        List<AnswerEntity> resultList = answerList.getResultList();
-        List<AnswerDetailsResponse> responseList = resultList.stream()
+        // the answers are read after the tag, by a read shared only with callers of the same tag, so a write in between
+        // can only make the tag older than the body
+        String entityTag = answerBusinessService.getAnswersByQuestionEntityTag(questionId);
+        if (entityTag != null && webRequest.checkNotModified(entityTag)) {
+            return null;
+        }
+        QuestionAnswers questionAnswers = answerBusinessService.getAnswersByQuestion(questionId, entityTag);
+        List<AnswerDetailsResponse> responseList = questionAnswers.getAnswers().stream()
                 .map(answer -> {
                     AnswerDetailsResponse response = new AnswerDetailsResponse();
-                    response.setAnswerContent(answer.getAns());
-                    response.setQuestionContent(answer.getQuestion().getContent());
+                    response.setAnswerContent(answer.getAnswer());
+                    response.setQuestionContent(questionAnswers.getQuestion().getContent());
                     response.setId(answer.getUuid());
                     return response;
                 }).collect(Collectors.toList());
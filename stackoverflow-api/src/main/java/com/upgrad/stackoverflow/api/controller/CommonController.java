@@ -2,14 +2,15 @@ package com.upgrad.stackoverflow.api.controller;
 
 import com.upgrad.stackoverflow.api.model.UserDetailsResponse;
 import com.upgrad.stackoverflow.service.business.CommonBusinessService;
+import com.upgrad.stackoverflow.service.common.AuthenticatedUser;
 import com.upgrad.stackoverflow.service.entity.UserEntity;
-import com.upgrad.stackoverflow.service.exception.AuthorizationFailedException;
 import com.upgrad.stackoverflow.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("")
@@ -22,15 +23,19 @@ public class CommonController {
      * A controller method to fetch the details of other user.
      *
      * @param userId        - The uuid of the user whose details are to be fetched from the database.
-     * @param authorization - A field in the request header which contains the JWT token.
-     * @return - ResponseEntity<UserDetailsResponse> type object along with Http status OK.
+     * @param authenticatedUser - The signed in user, resolved from the JWT token in the authorization header.
+     * @param webRequest        - The web request, checked against the entity tag of the profile.
+     * @return - ResponseEntity<UserDetailsResponse> type object along with Http status OK, or Http status NOT_MODIFIED if the profile matches If-None-Match.
      * @throws UserNotFoundException
-     * @throws AuthorizationFailedException
      */
     @GetMapping("/userprofile/{userId}")
     public ResponseEntity<UserDetailsResponse> getUserProfile(@PathVariable("userId") String userId,
-                                                              @RequestHeader(value="authorization") String authorization) throws AuthorizationFailedException, UserNotFoundException {
-        UserEntity user = commonBusinessService.getUser(userId, authorization);
+                                                              AuthenticatedUser authenticatedUser, WebRequest webRequest) throws UserNotFoundException {
+        String entityTag = commonBusinessService.getUserEntityTag(userId);
+        if (entityTag != null && webRequest.checkNotModified(entityTag)) {
+            return null;
+        }
+        UserEntity user = commonBusinessService.getUser(userId);
         UserDetailsResponse userDetailsResponse = new UserDetailsResponse();
         userDetailsResponse.setUserName(user.getUserName());
         userDetailsResponse.setFirstName(user.getFirstName());
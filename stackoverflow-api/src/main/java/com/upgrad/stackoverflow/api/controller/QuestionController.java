@@ -1,63 +1,84 @@
 package com.upgrad.stackoverflow.api.controller;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.upgrad.stackoverflow.api.model.*;
 import com.upgrad.stackoverflow.service.business.QuestionBusinessService;
+import com.upgrad.stackoverflow.service.common.AuthenticatedUser;
 import com.upgrad.stackoverflow.service.entity.QuestionEntity;
 import com.upgrad.stackoverflow.service.exception.AuthorizationFailedException;
+import com.upgrad.stackoverflow.service.exception.InvalidCursorException;
 import com.upgrad.stackoverflow.service.exception.InvalidQuestionException;
 import com.upgrad.stackoverflow.service.exception.UserNotFoundException;
+import com.upgrad.stackoverflow.service.projection.QuestionAnswersPage;
+import com.upgrad.stackoverflow.service.projection.QuestionPage;
+import com.upgrad.stackoverflow.service.projection.QuestionSummary;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import javax.persistence.TypedQuery;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+@RestController
 @RequestMapping("/question")
 public class QuestionController {
 
     @Autowired
     private QuestionBusinessService questionBusinessService;
+    @Autowired
+    private ObjectMapper objectMapper;
     /**
      * A controller method to create a question.
      *
      * @param questionRequest - This argument contains all the attributes required to store question details in the database.
-     * @param authorization   - A field in the request header which contains the JWT token.
+     * @param user            - The signed in user, resolved from the JWT token in the authorization header.
      * @return - ResponseEntity<QuestionResponse> type object along with Http status CREATED.
-     * @throws AuthorizationFailedException
      */
     @PostMapping("/create")
-    public ResponseEntity<QuestionResponse> createQuestion(@RequestBody QuestionRequest questionRequest, @RequestHeader(value="Authorization") String authorization) throws AuthorizationFailedException
+    public ResponseEntity<QuestionResponse> createQuestion(@RequestBody QuestionRequest questionRequest, AuthenticatedUser user)
     {
         QuestionEntity questionEntity = new QuestionEntity();
         questionEntity.setUuid(UUID.randomUUID().toString());
         questionEntity.setContent(questionRequest.getContent());
-        QuestionEntity question = questionBusinessService.createQuestion(questionEntity, authorization);
+        QuestionEntity question = questionBusinessService.createQuestion(questionEntity, user);
         QuestionResponse questionResponse = new QuestionResponse();
         questionResponse.setId(question.getUuid());
         questionResponse.setStatus("Question created");
         return new ResponseEntity<>(questionResponse, HttpStatus.OK);
     }
     /**
-     * A controller method to fetch all the questions from the database.
+     * A controller method to fetch a page of the questions from the database, newest first.
      *
-     * @param authorization - A field in the request header which contains the JWT token.
-     * @return - ResponseEntity<List<QuestionDetailsResponse>> type object along with Http status OK.
-     * @throws AuthorizationFailedException
+     * @param cursor - The next_cursor of the previous page, omitted for the first page.
+     * @param limit  - The maximum number of questions in the page.
+     * @param user       - The signed in user, resolved from the JWT token in the authorization header.
+     * @param webRequest - The web request, checked against the entity tag of the page.
+     * @return - ResponseEntity<QuestionPageResponse> type object along with Http status OK, or Http status NOT_MODIFIED if the page matches If-None-Match.
+     * @throws InvalidCursorException
      */
     @GetMapping("/all")
 
-    public ResponseEntity<List<QuestionDetailsResponse>> getQuestions(@RequestHeader(value="Authorization") String authorization) throws AuthorizationFailedException
+    public ResponseEntity<QuestionPageResponse> getQuestions(@RequestParam(value = "cursor", required = false) String cursor,
+                                                             @RequestParam(value = "limit", required = false) Integer limit,
+                                                             AuthenticatedUser user, WebRequest webRequest) throws InvalidCursorException
     {
-        TypedQuery<QuestionEntity> questionList = questionBusinessService.getQuestions(authorization);
-        List<QuestionEntity> resultList = questionList.getResultList();
-        List<QuestionDetailsResponse> responseList = resultList.stream()
+        QuestionPage questionPage = questionBusinessService.getQuestions(cursor, limit);
+        if (webRequest.checkNotModified(questionPage.getEntityTag())) {
+            return null;
+        }
+        List<QuestionDetailsResponse> responseList = questionPage.getQuestions().stream()
                 .map(question -> {
                     QuestionDetailsResponse response = new QuestionDetailsResponse();
                     response.setContent(question.getContent());
@@ -65,7 +86,37 @@ public class QuestionController {
                     return response;
                 }).collect(Collectors.toList());
 
-        return new ResponseEntity<>(responseList, HttpStatus.OK);
+        QuestionPageResponse questionPageResponse = new QuestionPageResponse().questions(responseList)
+                .nextCursor(questionPage.getNextCursor());
+        return new ResponseEntity<>(questionPageResponse, HttpStatus.OK);
+    }
+
+    /**
+     * A controller method to export all the questions from the database as one JSON array, oldest first. Each question
+     * is written to the response as soon as it is read, so memory stays flat however big the QUESTION table is.
+     *
+     * @param user     - The signed in user, resolved from the JWT token in the authorization header.
+     * @param response - The response the questions are written to.
+     * @throws IOException
+     */
+    @GetMapping("/export")
+    public void exportQuestions(AuthenticatedUser user, HttpServletResponse response) throws IOException
+    {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            questionBusinessService.exportQuestions(question -> {
+                try {
+                    generator.writeObject(new QuestionDetailsResponse().id(question.getUuid()).content(question.getContent()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
     /**
@@ -73,17 +124,17 @@ public class QuestionController {
      *
      * @param questionEditRequest - This argument contains all the attributes required to edit the question details in the database.
      * @param questionId          - The uuid of the question to be edited in the database.
-     * @param authorization       - A field in the request header which contains the JWT token.
+     * @param user                - The signed in user, resolved from the JWT token in the authorization header.
      * @return - ResponseEntity<QuestionEditResponse> type object along with Http status OK.
      * @throws AuthorizationFailedException
      * @throws InvalidQuestionException
      */
     @PutMapping(path = "/edit/{questionId}")
-    public ResponseEntity<QuestionEditResponse> editQuestionContent(@PathVariable("questionId") String questionId, @RequestBody QuestionEditRequest questionEditRequest, @RequestHeader("authorization") String authorization) throws AuthorizationFailedException, InvalidQuestionException
+    public ResponseEntity<QuestionEditResponse> editQuestionContent(@PathVariable("questionId") String questionId, @RequestBody QuestionEditRequest questionEditRequest, AuthenticatedUser user) throws AuthorizationFailedException, InvalidQuestionException
     {
         QuestionEntity questionEntity = new QuestionEntity();
         questionEntity.setContent(questionEditRequest.getContent());
-        QuestionEntity questionContent1 = questionBusinessService.editQuestionContent(questionEntity, questionId, authorization);
+        QuestionEntity questionContent1 = questionBusinessService.editQuestionContent(questionEntity, questionId, user);
         QuestionEditResponse question = new QuestionEditResponse();
         question.id(questionContent1.getUuid());
         question.status("QUESTION EDITED");
@@ -95,14 +146,14 @@ public class QuestionController {
      * A controller method to delete the question in the database.
      *
      * @param questionId    - The uuid of the question to be deleted in the database.
-     * @param authorization - A field in the request header which contains the JWT token.
+     * @param user          - The signed in user, resolved from the JWT token in the authorization header.
      * @return - ResponseEntity<QuestionDeleteResponse> type object along with Http status OK.
      * @throws AuthorizationFailedException
      * @throws InvalidQuestionException
      */
     @DeleteMapping("/delete/{questionId}")
-    public ResponseEntity<QuestionDeleteResponse> deleteQuestion(@PathVariable String questionId, @RequestHeader("authorization") String authorization) throws AuthorizationFailedException,InvalidQuestionException{
-        QuestionEntity questionEntity = questionBusinessService.deleteQuestion(questionId,authorization);
+    public ResponseEntity<QuestionDeleteResponse> deleteQuestion(@PathVariable String questionId, AuthenticatedUser user) throws AuthorizationFailedException,InvalidQuestionException{
+        QuestionEntity questionEntity = questionBusinessService.deleteQuestion(questionId,user);
         QuestionDeleteResponse questionDeleteResponse = new QuestionDeleteResponse().id(questionEntity.getUuid()).status("Question Deleted");
         return new ResponseEntity<>(questionDeleteResponse,HttpStatus.OK);
     }
@@ -111,15 +162,19 @@ public class QuestionController {
      * A controller method to fetch all the questions posted by a specific user.
      *
      * @param userId        - The uuid of the user whose questions are to be fetched from the database.
-     * @param authorization - A field in the request header which contains the JWT token.
-     * @return - ResponseEntity<List<QuestionDetailsResponse>> type object along with Http status OK.
-     * @throws AuthorizationFailedException
+     * @param user          - The signed in user, resolved from the JWT token in the authorization header.
+     * @param webRequest    - The web request, checked against the entity tag of the questions of the user.
+     * @return - ResponseEntity<List<QuestionDetailsResponse>> type object along with Http status OK, or Http status NOT_MODIFIED if the questions match If-None-Match.
      * @throws UserNotFoundException
      */
     @GetMapping("/all/{userId}")
-    public ResponseEntity<List<QuestionDetailsResponse>> getAllByUserId(@PathVariable String userId, @RequestHeader("authorization") String authorization) throws AuthorizationFailedException, UserNotFoundException{
-        TypedQuery<QuestionEntity> questionList = questionBusinessService.getQuestionsByUser(userId,authorization);
-        List<QuestionEntity> resultList = questionList.getResultList();
+    public ResponseEntity<List<QuestionDetailsResponse>> getAllByUserId(@PathVariable String userId, AuthenticatedUser user, WebRequest webRequest) throws UserNotFoundException{
+        // the tag is read before the questions, so a write in between can only make the tag older than the body
+        String entityTag = questionBusinessService.getQuestionsByUserEntityTag(userId);
+        if (entityTag != null && webRequest.checkNotModified(entityTag)) {
+            return null;
+        }
+        List<QuestionSummary> resultList = questionBusinessService.getQuestionsByUser(userId);
         List<QuestionDetailsResponse> responseList = resultList.stream()
                 .map(question -> {
                     QuestionDetailsResponse response = new QuestionDetailsResponse();
@@ -131,4 +186,36 @@ public class QuestionController {
         return new ResponseEntity<>(responseList, HttpStatus.OK);
     }
 
+    /**
+     * A controller method to fetch a question together with a page of its answers, oldest first, so that clients do
+     * not need a request per question to /answer/all.
+     *
+     * @param questionId - The uuid of the question to be fetched from the database.
+     * @param cursor     - The next_cursor of the previous page of answers, omitted for the first page.
+     * @param limit      - The maximum number of answers in the page.
+     * @param user       - The signed in user, resolved from the JWT token in the authorization header.
+     * @param webRequest - The web request, checked against the entity tag of the question and the page.
+     * @return - ResponseEntity<QuestionWithAnswersResponse> type object along with Http status OK, or Http status NOT_MODIFIED if the page matches If-None-Match.
+     * @throws InvalidQuestionException
+     * @throws InvalidCursorException
+     */
+    @GetMapping("/{questionId}")
+    public ResponseEntity<QuestionWithAnswersResponse> getQuestionWithAnswers(@PathVariable String questionId,
+                                                                              @RequestParam(value = "cursor", required = false) String cursor,
+                                                                              @RequestParam(value = "limit", required = false) Integer limit,
+                                                                              AuthenticatedUser user, WebRequest webRequest) throws InvalidQuestionException, InvalidCursorException
+    {
+        QuestionAnswersPage questionAnswersPage = questionBusinessService.getQuestionWithAnswers(questionId, cursor, limit);
+        if (webRequest.checkNotModified(questionAnswersPage.getEntityTag())) {
+            return null;
+        }
+        List<QuestionAnswerResponse> answers = questionAnswersPage.getAnswers().stream()
+                .map(answer -> new QuestionAnswerResponse().id(answer.getUuid()).content(answer.getAnswer()))
+                .collect(Collectors.toList());
+        QuestionSummary question = questionAnswersPage.getQuestion();
+        QuestionWithAnswersResponse questionWithAnswersResponse = new QuestionWithAnswersResponse().id(question.getUuid())
+                .content(question.getContent()).answers(answers).nextCursor(questionAnswersPage.getNextCursor());
+        return new ResponseEntity<>(questionWithAnswersResponse, HttpStatus.OK);
+    }
+
 }
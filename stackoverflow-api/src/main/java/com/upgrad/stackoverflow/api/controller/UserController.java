@@ -1,14 +1,21 @@
 package com.upgrad.stackoverflow.api.controller;
 
+import com.upgrad.stackoverflow.api.model.SessionDetailsResponse;
+import com.upgrad.stackoverflow.api.model.SessionListResponse;
 import com.upgrad.stackoverflow.api.model.SigninResponse;
+import com.upgrad.stackoverflow.api.model.SignoutAllSessionsResponse;
 import com.upgrad.stackoverflow.api.model.SignoutResponse;
 import com.upgrad.stackoverflow.api.model.SignupUserRequest;
 import com.upgrad.stackoverflow.api.model.SignupUserResponse;
+import com.upgrad.stackoverflow.service.business.SigninThrottle;
 import com.upgrad.stackoverflow.service.business.UserBusinessService;
-import com.upgrad.stackoverflow.service.entity.UserAuthEntity;
+import com.upgrad.stackoverflow.service.common.AuthenticatedUser;
+import com.upgrad.stackoverflow.service.common.BasicCredentials;
 import com.upgrad.stackoverflow.service.entity.UserEntity;
 import com.upgrad.stackoverflow.service.exception.AuthenticationFailedException;
 import com.upgrad.stackoverflow.service.exception.SignOutRestrictedException;
+import com.upgrad.stackoverflow.service.exception.SigninThrottledException;
+import com.upgrad.stackoverflow.service.projection.UserSessionSummary;
 import com.upgrad.stackoverflow.service.exception.SignUpRestrictedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,26 +26,35 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Base64;
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 @RestController
 @RequestMapping("/user")
 public class UserController {
 
+    private static final int MAX_SESSIONS_PAGE_SIZE = 100;
+
     @Autowired
     private UserBusinessService userBusinessService;
 
+    @Autowired
+    private SigninThrottle signinThrottle;
+
     private final Logger LOGGER = LoggerFactory.getLogger(UserController.class);
 
     /**
      * A controller method for user signup.
      *
      * @param signupUserRequest - This argument contains all the attributes required to store user details in the database.
-     * @return - ResponseEntity<SignupUserResponse> type object along with Http status CREATED.
+     * @return - ResponseEntity<SignupUserResponse> type object along with Http status CREATED, once the password has been hashed
+     * and the user stored. The request thread is released while the password is being hashed.
      * @throws SignUpRestrictedException
      */
     @PostMapping("/signup")
-    public ResponseEntity<SignupUserResponse> signup(@RequestBody SignupUserRequest signupUserRequest) throws SignUpRestrictedException {
+    public CompletableFuture<ResponseEntity<SignupUserResponse>> signup(@RequestBody SignupUserRequest signupUserRequest) throws SignUpRestrictedException {
         LOGGER.info("In signup method.");
         final UserEntity userEntity = new UserEntity();
         userEntity.setUuid(UUID.randomUUID().toString());
@@ -54,34 +70,38 @@ public class UserController {
         userEntity.setDob(signupUserRequest.getDob());
         userEntity.setRole("user");
         LOGGER.info("The User Info is {}",userEntity);
-        final UserEntity createdUserEntity = userBusinessService.signup(userEntity);
-        SignupUserResponse userResponse = new SignupUserResponse().id(createdUserEntity.getUuid()).status("REGISTERED");
-        LOGGER.info("Signup Successful");
-        return new ResponseEntity<SignupUserResponse>(userResponse,HttpStatus.CREATED);
+        return userBusinessService.signup(userEntity).thenApply(createdUserEntity -> {
+            SignupUserResponse userResponse = new SignupUserResponse().id(createdUserEntity.getUuid()).status("REGISTERED");
+            LOGGER.info("Signup Successful");
+            return new ResponseEntity<SignupUserResponse>(userResponse,HttpStatus.CREATED);
+        });
     }
 
     /**
      * A controller method for user authentication.
      *
      * @param authorization - A field in the request header which contains the user credentials as Basic authentication.
-     * @return - ResponseEntity<SigninResponse> type object along with Http status OK.
+     * @param request - The request, whose client address is throttled along with the username.
+     * @return - ResponseEntity<SigninResponse> type object along with Http status OK, once the password has been verified.
+     * The request thread is released while the password is being hashed.
      * @throws AuthenticationFailedException
+     * @throws SigninThrottledException
      */
 
     @RequestMapping(method = RequestMethod.POST, path = "/signin", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<SigninResponse> authentication(@RequestHeader("authorization") final String authorization) throws AuthenticationFailedException{
+    public CompletableFuture<ResponseEntity<SigninResponse>> authentication(@RequestHeader("authorization") final String authorization, final HttpServletRequest request) throws AuthenticationFailedException, SigninThrottledException {
         LOGGER.info("In Signin Controller method, Decoding username and password");
-        byte[] decode = Base64.getDecoder().decode(authorization.split("Basic ")[1]);
-        String decodedText = new String(decode);
-        String[] decodedArray = decodedText.split(":");
+        BasicCredentials credentials = BasicCredentials.parse(authorization);
+        signinThrottle.acquire(credentials.getUsername(), request.getRemoteAddr());
         LOGGER.info("Calling Business service to authenticate");
-        UserAuthEntity userAuthToken = userBusinessService.authenticate(decodedArray[0],decodedArray[1]);
-        UserEntity user = userAuthToken.getUser();
-        LOGGER.info("Signin Successful");
-        SigninResponse signinResponse = new SigninResponse().id(user.getUuid()).message("Successfully Signedin");
-        HttpHeaders header= new HttpHeaders();
-        header.add("access-token", userAuthToken.getAccessToken());
-        return new ResponseEntity<SigninResponse>(signinResponse, header,HttpStatus.OK);
+        return userBusinessService.authenticate(credentials.getUsername(),credentials.getPassword()).thenApply(userAuthToken -> {
+            UserEntity user = userAuthToken.getUser();
+            LOGGER.info("Signin Successful");
+            SigninResponse signinResponse = new SigninResponse().id(user.getUuid()).message("Successfully Signedin");
+            HttpHeaders header= new HttpHeaders();
+            header.add("access-token", userAuthToken.getAccessToken());
+            return new ResponseEntity<SigninResponse>(signinResponse, header,HttpStatus.OK);
+        });
     }
 
     /**
@@ -95,13 +115,52 @@ public class UserController {
     @RequestMapping(method = RequestMethod.POST, path = "/signout", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<SignoutResponse> signout(@RequestHeader("authorization") final String authorization) throws SignOutRestrictedException{
         LOGGER.info("In Signout method");
-        UserAuthEntity userAuthEntity = userBusinessService.signout(authorization);
+        String userUuid = userBusinessService.signout(authorization);
 
-        UserEntity user = userAuthEntity.getUser();
         LOGGER.info("Signout Successful");
-        SignoutResponse signoutResponse = new SignoutResponse().id(user.getUuid()).message("Successfully Signed out");
+        SignoutResponse signoutResponse = new SignoutResponse().id(userUuid).message("Successfully Signed out");
         return new ResponseEntity<SignoutResponse>(signoutResponse,HttpStatus.OK);
 
     }
 
-}
\ No newline at end of file
+    /**
+     * A controller method to list the active sessions of the signed in user.
+     *
+     * @param before - The next_cursor of the previous page, omitted for the first page.
+     * @param limit  - The maximum number of sessions in the page.
+     * @param user   - The signed in user, resolved from the JWT token in the authorization header.
+     * @return - ResponseEntity<SessionListResponse> type object along with Http status OK.
+     */
+    @GetMapping(path = "/sessions", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<SessionListResponse> getSessions(@RequestParam(value = "before", required = false) final Integer before,
+                                                           @RequestParam(value = "limit", defaultValue = "20") final int limit,
+                                                           AuthenticatedUser user) {
+        final int pageSize = Math.max(1, Math.min(MAX_SESSIONS_PAGE_SIZE, limit));
+        List<UserSessionSummary> sessions = userBusinessService.getActiveSessions(user, before, pageSize);
+        SessionListResponse sessionListResponse = new SessionListResponse().sessions(sessions.stream()
+                .map(session -> new SessionDetailsResponse().id(session.getId())
+                        .loginAt(session.getLoginAt().toOffsetDateTime())
+                        .expiresAt(session.getExpiresAt().toOffsetDateTime()))
+                .collect(Collectors.toList()));
+        if (sessions.size() == pageSize) {
+            sessionListResponse.nextCursor(sessions.get(sessions.size() - 1).getId());
+        }
+        return new ResponseEntity<SessionListResponse>(sessionListResponse, HttpStatus.OK);
+    }
+
+    /**
+     * A controller method to sign the signed in user out of every active session.
+     *
+     * @param user - The signed in user, resolved from the JWT token in the authorization header.
+     * @return - ResponseEntity<SignoutAllSessionsResponse> type object along with Http status OK.
+     */
+    @DeleteMapping(path = "/sessions", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<SignoutAllSessionsResponse> signoutAllSessions(AuthenticatedUser user) {
+        LOGGER.info("In Signout of all sessions method");
+        final int signedOut = userBusinessService.signoutAllSessions(user);
+        SignoutAllSessionsResponse signoutAllSessionsResponse = new SignoutAllSessionsResponse().id(user.getUuid())
+                .signedOutSessions(signedOut).message("Successfully Signed out of all sessions");
+        return new ResponseEntity<SignoutAllSessionsResponse>(signoutAllSessionsResponse, HttpStatus.OK);
+    }
+
+}
@@ -2,6 +2,7 @@ package com.upgrad.stackoverflow.api.exception;
 
 import com.upgrad.stackoverflow.api.model.ErrorResponse;
 import com.upgrad.stackoverflow.service.exception.*;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -28,6 +29,36 @@ public class RestExceptionHandler {
         );
     }
 
+    /**
+     * @param exc     - ServiceBusyException type object containing error code and error message.
+     * @param request - The web request object gives access to all the request parameters.
+     * @return - ResponseEntity<ErrorResponse> type object displaying error code and error message along with HttpStatus SERVICE_UNAVAILABLE
+     * and a Retry-After header.
+     */
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<ErrorResponse> serviceBusyException(ServiceBusyException exc, WebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.RETRY_AFTER, "1");
+        return new ResponseEntity<ErrorResponse>(
+                new ErrorResponse().code(exc.getCode()).message(exc.getErrorMessage()), headers, HttpStatus.SERVICE_UNAVAILABLE
+        );
+    }
+
+    /**
+     * @param exc     - SigninThrottledException type object containing error code and error message.
+     * @param request - The web request object gives access to all the request parameters.
+     * @return - ResponseEntity<ErrorResponse> type object displaying error code and error message along with HttpStatus TOO_MANY_REQUESTS
+     * and a Retry-After header.
+     */
+    @ExceptionHandler(SigninThrottledException.class)
+    public ResponseEntity<ErrorResponse> signinThrottledException(SigninThrottledException exc, WebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.RETRY_AFTER, String.valueOf(exc.getRetryAfterSeconds()));
+        return new ResponseEntity<ErrorResponse>(
+                new ErrorResponse().code(exc.getCode()).message(exc.getErrorMessage()), headers, HttpStatus.TOO_MANY_REQUESTS
+        );
+    }
+
     /**
      * @param exc     - AuthenticationFailedException type object containing error code and error message.
      * @param request - The web request object gives access to all the request parameters.
@@ -89,6 +120,18 @@ public class RestExceptionHandler {
         );
     }
 
+    /**
+     * @param exc     - InvalidCursorException type object containing error code and error message.
+     * @param request - The web request object gives access to all the request parameters.
+     * @return - ResponseEntity<ErrorResponse> type object displaying error code and error message along with HttpStatus BAD_REQUEST.
+     */
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ErrorResponse> invalidCursorException(InvalidCursorException exc, WebRequest request) {
+        return new ResponseEntity<ErrorResponse>(
+                new ErrorResponse().code(exc.getCode()).message(exc.getErrorMessage()), HttpStatus.BAD_REQUEST
+        );
+    }
+
     /**
      * @param exc     - AnswerNotFoundException type object containing error code and error message.
      * @param request - The web request object gives access to all the request parameters.
@@ -0,0 +1,32 @@
+package com.upgrad.stackoverflow.api.security;
+
+import com.upgrad.stackoverflow.service.common.AuthenticatedUser;
+import com.upgrad.stackoverflow.service.exception.AuthorizationFailedException;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * AuthenticatedUserArgumentResolver hands the principal resolved by AuthenticationFilter to controller methods which
+ * declare an AuthenticatedUser parameter.
+ */
+public class AuthenticatedUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return AuthenticatedUser.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer, NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws AuthorizationFailedException {
+        final Object user = webRequest.getAttribute(AuthenticationFilter.PRINCIPAL_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (user == null) {
+            // the endpoint is not covered by the url patterns of the filter
+            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
+        }
+        return user;
+    }
+}
@@ -0,0 +1,53 @@
+package com.upgrad.stackoverflow.api.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.stackoverflow.api.model.ErrorResponse;
+import com.upgrad.stackoverflow.service.business.AuthenticationBusinessService;
+import com.upgrad.stackoverflow.service.common.AuthenticatedUser;
+import com.upgrad.stackoverflow.service.exception.AuthorizationFailedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * AuthenticationFilter resolves the access token in the authorization header into the signed in user once per request.
+ *
+ * Requests without a valid session are answered with ATHR-001 or ATHR-002 before they reach Spring MVC, so no request
+ * body is read and no transaction is opened for them. The principal of accepted requests is stored as a request attribute
+ * and handed to the controllers by AuthenticatedUserArgumentResolver.
+ */
+public class AuthenticationFilter extends OncePerRequestFilter {
+
+    public static final String PRINCIPAL_ATTRIBUTE = AuthenticatedUser.class.getName();
+
+    private final AuthenticationBusinessService authenticationBusinessService;
+
+    private final ObjectMapper objectMapper;
+
+    public AuthenticationFilter(final AuthenticationBusinessService authenticationBusinessService, final ObjectMapper objectMapper) {
+        this.authenticationBusinessService = authenticationBusinessService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        final AuthenticatedUser user;
+        try {
+            user = authenticationBusinessService.authenticate(request.getHeader(HttpHeaders.AUTHORIZATION));
+        } catch (AuthorizationFailedException exc) {
+            response.setStatus(HttpStatus.FORBIDDEN.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), new ErrorResponse().code(exc.getCode()).message(exc.getErrorMessage()));
+            return;
+        }
+        request.setAttribute(PRINCIPAL_ATTRIBUTE, user);
+        filterChain.doFilter(request, response);
+    }
+}
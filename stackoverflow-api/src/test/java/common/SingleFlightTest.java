@@ -0,0 +1,126 @@
+package common;
+
+import com.upgrad.stackoverflow.service.common.SingleFlight;
+import com.upgrad.stackoverflow.service.exception.InvalidQuestionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * This class contains all the test cases to test the coalescing of concurrent reads by SingleFlight.
+ */
+public class SingleFlightTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final SingleFlight<String, Object, InvalidQuestionException> singleFlight =
+            new SingleFlight<>("test", InvalidQuestionException.class, meterRegistry);
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private double calls(final String result) {
+        return meterRegistry.counter("stackoverflow.singleflight.calls", "name", "test", "result", result).count();
+    }
+
+    //This test case passes when concurrent callers for the same key share one execution and its result.
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        final int callers = 8;
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger executions = new AtomicInteger();
+        final Object result = new Object();
+        final ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            final List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                    executions.incrementAndGet();
+                    await(release);
+                    return result;
+                })));
+            }
+            while (calls("executed") + calls("coalesced") < callers) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<Object> future : futures) {
+                assertSame(result, future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, executions.get());
+        assertEquals(1, calls("executed"), 0);
+        assertEquals(callers - 1, calls("coalesced"), 0);
+    }
+
+    //This test case passes when the checked exception of the shared execution is rethrown to every caller.
+    @Test
+    public void exceptionIsSharedWithWaitingCallers() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Object> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+                started.countDown();
+                await(release);
+                throw new InvalidQuestionException("QUES-001", "question with this id does not exist in database");
+            }));
+            started.await();
+            final Thread follower = new Thread(() -> {
+                while (calls("coalesced") < 1) {
+                    Thread.yield();
+                }
+                release.countDown();
+            });
+            follower.start();
+            try {
+                singleFlight.execute("key", () -> {
+                    throw new AssertionError("the running execution must be shared");
+                });
+                fail("Expected InvalidQuestionException");
+            } catch (InvalidQuestionException e) {
+                assertEquals("QUES-001", e.getCode());
+            }
+            try {
+                leader.get(10, TimeUnit.SECONDS);
+                fail("Expected InvalidQuestionException");
+            } catch (ExecutionException e) {
+                assertEquals(InvalidQuestionException.class, e.getCause().getClass());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    //This test case passes when calls which do not overlap, or are for different keys, are each executed.
+    @Test
+    public void sequentialAndDistinctCallsAreExecuted() throws Exception {
+        final AtomicInteger executions = new AtomicInteger();
+        singleFlight.execute("a", executions::incrementAndGet);
+        singleFlight.execute("a", executions::incrementAndGet);
+        singleFlight.execute("b", executions::incrementAndGet);
+        assertEquals(3, executions.get());
+        assertEquals(0, calls("coalesced"), 0);
+    }
+}
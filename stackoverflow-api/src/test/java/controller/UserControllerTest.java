@@ -28,7 +28,8 @@ public class UserControllerTest {
     //This test case passes when you signup with a username that already exists in the database.
     @Test
     public void signupWithRepeatedUserName() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=database_username&emailAddress=a&password=a&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+        mvc.perform(MockMvcRequestBuilders.post("/user/signup").contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"first_name\":\"a\",\"last_name\":\"a\",\"user_name\":\"database_username\",\"email_address\":\"a\",\"password\":\"a\",\"country\":\"a\",\"aboutMe\":\"a\",\"dob\":\"a\",\"contact_number\":\"a\"}"))
                 .andExpect(status().isConflict())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-001"));
     }
@@ -36,7 +37,8 @@ public class UserControllerTest {
     //This test case passes when you signup with an email that already exists in the database.
     @Test
     public void signupWithRepeatedEmail() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=non_existing_username&emailAddress=database_email&password=a&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+        mvc.perform(MockMvcRequestBuilders.post("/user/signup").contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"first_name\":\"a\",\"last_name\":\"a\",\"user_name\":\"non_existing_username\",\"email_address\":\"database_email\",\"password\":\"a\",\"country\":\"a\",\"aboutMe\":\"a\",\"dob\":\"a\",\"contact_number\":\"a\"}"))
                 .andExpect(status().isConflict())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-002"));
     }
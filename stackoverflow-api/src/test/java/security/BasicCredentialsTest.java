@@ -0,0 +1,143 @@
+package security;
+
+import com.upgrad.stackoverflow.service.common.BasicCredentials;
+import com.upgrad.stackoverflow.service.exception.AuthenticationFailedException;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * This class contains all the test cases to test the parsing of Basic authorization headers by BasicCredentials.
+ */
+public class BasicCredentialsTest {
+
+    private static String basic(final String credentials) {
+        return "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertMalformed(final String authorization) {
+        try {
+            BasicCredentials.parse(authorization);
+            fail("Expected " + authorization + " to be rejected");
+        } catch (AuthenticationFailedException e) {
+            assertEquals("ATH-004", e.getCode());
+        }
+    }
+
+    //This test case passes when the username and password of a well formed header are returned.
+    @Test
+    public void parseValidHeader() throws Exception {
+        final BasicCredentials credentials = BasicCredentials.parse(basic("database_username:database_password"));
+        assertEquals("database_username", credentials.getUsername());
+        assertEquals("database_password", credentials.getPassword());
+    }
+
+    //This test case passes when the header is split at the first colon only.
+    @Test
+    public void parsePasswordWithColons() throws Exception {
+        final BasicCredentials credentials = BasicCredentials.parse(basic("user:pa:ss:"));
+        assertEquals("user", credentials.getUsername());
+        assertEquals("pa:ss:", credentials.getPassword());
+    }
+
+    //This test case passes when an empty password is accepted.
+    @Test
+    public void parseEmptyPassword() throws Exception {
+        assertEquals("", BasicCredentials.parse(basic("user:")).getPassword());
+    }
+
+    //This test case passes when non ASCII credentials are decoded as UTF-8.
+    @Test
+    public void parseUtf8Credentials() throws Exception {
+        final BasicCredentials credentials = BasicCredentials.parse(basic("jürgen:пароль🔑"));
+        assertEquals("jürgen", credentials.getUsername());
+        assertEquals("пароль🔑", credentials.getPassword());
+    }
+
+    //This test case passes when the scheme is matched case-insensitively and extra spaces and padding are accepted.
+    @Test
+    public void parseLenientSchemeSpacingAndPadding() throws Exception {
+        assertEquals("a", BasicCredentials.parse("basic  " + Base64.getEncoder().encodeToString("a:b".getBytes(StandardCharsets.UTF_8)) + " ").getUsername());
+        assertEquals("ab", BasicCredentials.parse("Basic " + Base64.getEncoder().withoutPadding().encodeToString("ab:c1".getBytes(StandardCharsets.UTF_8))).getUsername());
+    }
+
+    //This test case passes when malformed headers are rejected with ATH-004 instead of a runtime exception.
+    @Test
+    public void rejectMalformedHeaders() {
+        assertMalformed(null);
+        assertMalformed("");
+        assertMalformed("Basic");
+        assertMalformed("Basic ");
+        assertMalformed("Bearer " + Base64.getEncoder().encodeToString("a:b".getBytes(StandardCharsets.UTF_8)));
+        assertMalformed("BasicYTpi");
+        assertMalformed(basic("no-colon"));
+        assertMalformed(basic(":password"));
+        assertMalformed("Basic YTpi!");
+        assertMalformed("Basic YTp");
+        assertMalformed("Basic YTpiY");
+        assertMalformed("Basic YT=i");
+        assertMalformed("Basic YTpiYw=");
+        assertMalformed("Basic YTpiYx==");
+        assertMalformed("Basic " + Base64.getEncoder().encodeToString(new byte[]{'a', ':', (byte) 0xC3}));
+    }
+
+    //This test case passes when random credentials survive encoding and parsing unchanged.
+    @Test
+    public void fuzzRoundTrip() throws Exception {
+        final Random random = new Random(7);
+        for (int i = 0; i < 10000; i++) {
+            final String username = randomText(random, 1 + random.nextInt(20)).replace(':', '_');
+            final String password = randomText(random, random.nextInt(40));
+            final BasicCredentials credentials = BasicCredentials.parse(basic(username + ":" + password));
+            assertEquals(username, credentials.getUsername());
+            assertEquals(password, credentials.getPassword());
+        }
+    }
+
+    //This test case passes when random headers are either parsed or rejected with ATH-004, and never fail otherwise.
+    @Test
+    public void fuzzGarbage() {
+        final Random random = new Random(11);
+        final char[] alphabet = "ABCabcxyz0189+/=: é€".toCharArray();
+        for (int i = 0; i < 100000; i++) {
+            final StringBuilder header = new StringBuilder(random.nextBoolean() ? "Basic " : "");
+            final int length = random.nextInt(24);
+            for (int j = 0; j < length; j++) {
+                header.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            try {
+                BasicCredentials.parse(header.toString());
+            } catch (AuthenticationFailedException e) {
+                assertEquals("ATH-004", e.getCode());
+            }
+        }
+    }
+
+    private static String randomText(final Random random, final int length) {
+        final StringBuilder text = new StringBuilder();
+        while (text.length() < length) {
+            final int codePoint;
+            switch (random.nextInt(4)) {
+                case 0:
+                    codePoint = 0x20 + random.nextInt(0x5F);
+                    break;
+                case 1:
+                    codePoint = 0xA0 + random.nextInt(0x700);
+                    break;
+                case 2:
+                    codePoint = 0x4E00 + random.nextInt(0x5000);
+                    break;
+                default:
+                    codePoint = 0x1F300 + random.nextInt(0x300);
+                    break;
+            }
+            text.appendCodePoint(codePoint);
+        }
+        return text.toString();
+    }
+}
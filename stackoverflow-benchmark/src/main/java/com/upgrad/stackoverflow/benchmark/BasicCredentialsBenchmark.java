@@ -0,0 +1,61 @@
+package com.upgrad.stackoverflow.benchmark;
+
+import com.upgrad.stackoverflow.service.common.BasicCredentials;
+import com.upgrad.stackoverflow.service.exception.AuthenticationFailedException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding the Basic authorization header of a signin, in nanoseconds per header.
+ *
+ * baselineSplit is the decoding as it was in UserController before BasicCredentials: a regex split on "Basic ",
+ * Base64 decoding into a String of the platform charset and a second split on every colon. parse decodes the base64
+ * straight from the header and splits once, at the first colon. Run with -prof gc to compare allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class BasicCredentialsBenchmark {
+
+    private String authorization;
+
+    @Setup
+    public void setup() {
+        authorization = "Basic " + Base64.getEncoder()
+                .encodeToString("database_username:database_password".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void baselineSplit(final Blackhole blackhole) {
+        byte[] decode = Base64.getDecoder().decode(authorization.split("Basic ")[1]);
+        String decodedText = new String(decode);
+        String[] decodedArray = decodedText.split(":");
+        blackhole.consume(decodedArray[0]);
+        blackhole.consume(decodedArray[1]);
+    }
+
+    @Benchmark
+    public void parse(final Blackhole blackhole) throws AuthenticationFailedException {
+        final BasicCredentials credentials = BasicCredentials.parse(authorization);
+        blackhole.consume(credentials.getUsername());
+        blackhole.consume(credentials.getPassword());
+    }
+}
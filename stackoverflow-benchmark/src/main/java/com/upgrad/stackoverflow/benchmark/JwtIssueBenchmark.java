@@ -0,0 +1,107 @@
+package com.upgrad.stackoverflow.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.upgrad.stackoverflow.service.common.JwtKeyRing;
+import com.upgrad.stackoverflow.service.common.JwtTokenIssuer;
+import com.upgrad.stackoverflow.service.entity.UserEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Measures the token issuing part of a signin, in tokens per second on a single thread.
+ *
+ * baselineLegacyToken is the signin path as it was before JwtTokenIssuer: a new Algorithm.HMAC512, and with it a new
+ * Mac, for every token plus a key id from UUID.randomUUID. issuerLegacyToken and issuerStatelessToken go through
+ * JwtTokenIssuer, which keeps the provider of a password hash and one Mac per thread, and takes ids from
+ * ThreadLocalRandom. Run with -t to see how each variant scales with more signins in parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class JwtIssueBenchmark {
+
+    private static final String TOKEN_ISSUER = "https://stackoverflow.io";
+
+    /**
+     * Number of distinct users signing in, i.e. distinct password hashes the legacy tokens are signed with.
+     */
+    @Param({"1000"})
+    public int users;
+
+    private UserEntity[] userEntities;
+
+    private String[] passwordHashes;
+
+    private JwtTokenIssuer legacyIssuer;
+
+    private JwtTokenIssuer statelessIssuer;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        userEntities = new UserEntity[users];
+        passwordHashes = new String[users];
+        for (int i = 0; i < users; i++) {
+            final UserEntity userEntity = new UserEntity();
+            userEntity.setId(i);
+            userEntity.setUuid(UUID.randomUUID().toString());
+            userEntity.setRole("user");
+            userEntities[i] = userEntity;
+            passwordHashes[i] = UUID.randomUUID().toString().replace("-", "").toUpperCase();
+        }
+        final JwtKeyRing jwtKeyRing = new JwtKeyRing("benchmark:" + UUID.randomUUID(), "benchmark");
+        legacyIssuer = new JwtTokenIssuer(jwtKeyRing, false, 10000, Duration.ofMinutes(15));
+        statelessIssuer = new JwtTokenIssuer(jwtKeyRing, true, 10000, Duration.ofMinutes(15));
+    }
+
+    private int nextUser() {
+        final int user = next;
+        next = user + 1 == users ? 0 : user + 1;
+        return user;
+    }
+
+    @Benchmark
+    public String baselineLegacyToken() {
+        final int user = nextUser();
+        final ZonedDateTime now = ZonedDateTime.now();
+        final Algorithm algorithm = Algorithm.HMAC512(passwordHashes[user]);
+        return JWT.create().withIssuer(TOKEN_ISSUER)
+                .withKeyId(UUID.randomUUID().toString())
+                .withAudience(userEntities[user].getUuid())
+                .withIssuedAt(Date.from(now.toInstant())).withExpiresAt(Date.from(now.plusHours(8).toInstant()))
+                .sign(algorithm);
+    }
+
+    @Benchmark
+    public String issuerLegacyToken() {
+        final int user = nextUser();
+        final ZonedDateTime now = ZonedDateTime.now();
+        return legacyIssuer.issueToken(userEntities[user], passwordHashes[user], now, now.plusHours(8));
+    }
+
+    @Benchmark
+    public String issuerStatelessToken() {
+        final int user = nextUser();
+        final ZonedDateTime now = ZonedDateTime.now();
+        return statelessIssuer.issueToken(userEntities[user], passwordHashes[user], now, now.plusHours(8));
+    }
+}
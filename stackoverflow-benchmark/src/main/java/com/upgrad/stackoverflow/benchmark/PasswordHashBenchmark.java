@@ -0,0 +1,93 @@
+package com.upgrad.stackoverflow.benchmark;
+
+import com.upgrad.stackoverflow.service.business.PasswordCryptographyProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+/**
+ * Measures the password check of a signin, in checks per second, at the legacy cost of 1000 iterations and 64 bits.
+ *
+ * baselineCheck is the check as it was before PasswordCryptographyProvider.matches: a SecretKeyFactory looked up for
+ * every hash, the result hex encoded into a String and compared with String.equals. providerMatches goes through
+ * PasswordCryptographyProvider.matches, which keeps one factory per thread and compares in constant time against the
+ * stored hex string. Use -p iterations=... to see the cost of the configured hash.
+ *
+ * PBKDF2 is CPU bound, so throughput should grow with the thread count up to the number of cores and flatten after.
+ * The main method runs both benchmarks once per thread count given on the command line:
+ *     java -cp stackoverflow-benchmark/target/benchmarks.jar com.upgrad.stackoverflow.benchmark.PasswordHashBenchmark 1 2 4 8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashBenchmark {
+
+    private static final String PASSWORD = "benchmark-password";
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    @Param({"1000"})
+    public int iterations;
+
+    private String salt;
+
+    private String hashedPassword;
+
+    private String hashHex;
+
+    @Setup
+    public void setup() {
+        final String[] encryptedText = new PasswordCryptographyProvider(iterations, 64).encrypt(PASSWORD);
+        salt = encryptedText[0];
+        hashedPassword = encryptedText[1];
+        hashHex = hashedPassword.substring(hashedPassword.lastIndexOf('$') + 1);
+    }
+
+    @Benchmark
+    public boolean baselineCheck() throws GeneralSecurityException {
+        final SecretKeyFactory skf = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512");
+        final PBEKeySpec spec = new PBEKeySpec(PASSWORD.toCharArray(), Base64.getDecoder().decode(salt), iterations, 64);
+        final byte[] hash = skf.generateSecret(spec).getEncoded();
+        final char[] hexChars = new char[hash.length * 2];
+        for (int j = 0; j < hash.length; j++) {
+            int v = hash[j] & 0xFF;
+            hexChars[j * 2] = HEX[v >>> 4];
+            hexChars[j * 2 + 1] = HEX[v & 0x0F];
+        }
+        return new String(hexChars).equals(hashHex);
+    }
+
+    @Benchmark
+    public boolean providerMatches() {
+        return PasswordCryptographyProvider.matches(PASSWORD, salt, hashedPassword);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        final String[] threadCounts = args.length > 0 ? args : new String[]{"1", "2", "4"};
+        for (String threads : threadCounts) {
+            final Options options = new OptionsBuilder()
+                    .include(PasswordHashBenchmark.class.getSimpleName())
+                    .threads(Integer.parseInt(threads))
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+--Indexes used to look up users and questions by uuid, and to list and compute the entity tags of the questions of
+--a user and of the answers to a question without reading QUESTION or ANSWER.
+--Statements in this file are separated by a line holding a single '/'.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS USERS_UUID_IDX ON USERS(UUID)
+/
+CREATE INDEX CONCURRENTLY IF NOT EXISTS QUESTION_UUID_IDX ON QUESTION(UUID)
+/
+CREATE INDEX CONCURRENTLY IF NOT EXISTS QUESTION_USER_ID_DATE_ID_IDX ON QUESTION(USER_ID, DATE, ID)
+/
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ANSWER_QUESTION_ID_DATE_ID_IDX ON ANSWER(QUESTION_ID, DATE, ID)
+/
@@ -0,0 +1,4 @@
+--Index used to page through all the questions, newest first, without sorting QUESTION.
+--Statements in this file are separated by a line holding a single '/'.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS QUESTION_DATE_ID_IDX ON QUESTION(DATE, ID)
+/
@@ -0,0 +1,18 @@
+--Table which keeps the digests of the unexpired access tokens of deleted users until they expire, the index used by
+--the reaper to purge them and the index used by the revoked token filter to poll for newly revoked tokens.
+--Statements in this file are separated by a line holding a single '/'.
+CREATE TABLE IF NOT EXISTS REVOKED_ACCESS_TOKEN(
+	ACCESS_TOKEN_DIGEST BYTEA PRIMARY KEY,
+	EXPIRES_AT TIMESTAMP NOT NULL,
+	REVOKED_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+)
+/
+
+ALTER TABLE REVOKED_ACCESS_TOKEN ADD COLUMN IF NOT EXISTS REVOKED_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+/
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS REVOKED_ACCESS_TOKEN_EXPIRES_AT_IDX ON REVOKED_ACCESS_TOKEN(EXPIRES_AT)
+/
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS REVOKED_ACCESS_TOKEN_REVOKED_AT_IDX ON REVOKED_ACCESS_TOKEN(REVOKED_AT)
+/
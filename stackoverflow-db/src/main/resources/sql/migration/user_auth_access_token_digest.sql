@@ -0,0 +1,34 @@
+--Adds the SHA-256 digest of the access token to USER_AUTH for databases created before the column existed.
+--Rows are backfilled in small batches, each committed on its own, so that signins are never blocked for long.
+--Nodes of the previous version may still be signing users in without a digest while this runs, so the column is
+--only made NOT NULL by user_auth_access_token_digest_not_null.sql, once every node writes the digest.
+--Statements in this file are separated by a line holding a single '/' because the procedure body contains semicolons.
+ALTER TABLE USER_AUTH ADD COLUMN IF NOT EXISTS ACCESS_TOKEN_DIGEST BYTEA
+/
+
+--Walks USER_AUTH in primary key order, so that every batch is a range scan of the primary key starting where the
+--previous batch ended, instead of a scan for NULL digests from the start of the table.
+CREATE OR REPLACE PROCEDURE BACKFILL_USER_AUTH_ACCESS_TOKEN_DIGEST(BATCH_SIZE INTEGER)
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    LAST_ID BIGINT := 0;
+    NEXT_ID BIGINT;
+BEGIN
+    LOOP
+        SELECT MAX(ID) INTO NEXT_ID FROM (SELECT ID FROM USER_AUTH WHERE ID > LAST_ID ORDER BY ID LIMIT BATCH_SIZE) BATCH;
+        EXIT WHEN NEXT_ID IS NULL;
+        UPDATE USER_AUTH SET ACCESS_TOKEN_DIGEST = sha256(convert_to(ACCESS_TOKEN, 'UTF8'))
+            WHERE ID > LAST_ID AND ID <= NEXT_ID AND ACCESS_TOKEN_DIGEST IS NULL;
+        COMMIT;
+        LAST_ID := NEXT_ID;
+    END LOOP;
+END;
+$$
+/
+
+CALL BACKFILL_USER_AUTH_ACCESS_TOKEN_DIGEST(10000)
+/
+
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS USER_AUTH_ACCESS_TOKEN_DIGEST_IDX ON USER_AUTH(ACCESS_TOKEN_DIGEST)
+/
@@ -0,0 +1,13 @@
+--Makes USER_AUTH.ACCESS_TOKEN_DIGEST NOT NULL, the second step of user_auth_access_token_digest.sql.
+--Run it only once every node runs a version which writes the digest (mvn -Pmigrate-finalize in stackoverflow-db).
+--Rows signed in by nodes of the previous version while the first step ran are backfilled again right before the
+--constraint is set, so that none of them is left without a digest and unreachable by the digest lookup.
+--Statements in this file are separated by a line holding a single '/'.
+CALL BACKFILL_USER_AUTH_ACCESS_TOKEN_DIGEST(10000)
+/
+
+ALTER TABLE USER_AUTH ALTER COLUMN ACCESS_TOKEN_DIGEST SET NOT NULL
+/
+
+DROP PROCEDURE BACKFILL_USER_AUTH_ACCESS_TOKEN_DIGEST(INTEGER)
+/
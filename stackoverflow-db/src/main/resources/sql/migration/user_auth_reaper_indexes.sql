@@ -0,0 +1,7 @@
+--Indexes used by the USER_AUTH reaper to find expired and signed out sessions without scanning the table.
+--Statements in this file are separated by a line holding a single '/'.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS USER_AUTH_EXPIRES_AT_IDX ON USER_AUTH(EXPIRES_AT)
+/
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS USER_AUTH_LOGOUT_AT_IDX ON USER_AUTH(LOGOUT_AT) WHERE LOGOUT_AT IS NOT NULL
+/
@@ -0,0 +1,4 @@
+--Index used to list and sign out all the sessions of a user without scanning USER_AUTH.
+--Statements in this file are separated by a line holding a single '/'.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS USER_AUTH_USER_ID_IDX ON USER_AUTH(USER_ID, ID)
+/
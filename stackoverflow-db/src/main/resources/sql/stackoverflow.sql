@@ -17,6 +17,9 @@ CREATE TABLE IF NOT EXISTS USERS(
     CONTACT_NUMBER VARCHAR(30)
 );
 
+--Index used to look up a user by the uuid of the API
+CREATE INDEX USERS_UUID_IDX ON USERS(UUID);
+
 
 INSERT INTO USERS(ID, UUID, FIRST_NAME, LAST_NAME, USERNAME, EMAIL, PASSWORD, SALT, COUNTRY, ABOUT_ME, DOB, ROLE, CONTACT_NUMBER)
 	VALUES (101,'rdtrdtdyt','Palash','Tripathi','palash','p@upgrad.com','507FF5FED1CAC746','8Xt6jxoCI3MWsVaKY/1ySAp2qzlb2Z7P89+vDrb1o6U=', 'India' ,'I am @ UpGrad' ,'23-12-1992' , 'admin' , '1222333333' );
@@ -29,6 +32,7 @@ CREATE TABLE IF NOT EXISTS USER_AUTH(
 	UUID VARCHAR(200) NOT NULL,
 	USER_ID INTEGER NOT NULL,
 	ACCESS_TOKEN VARCHAR(500) NOT NULL,
+	ACCESS_TOKEN_DIGEST BYTEA NOT NULL,
 	EXPIRES_AT TIMESTAMP NOT NULL,
 	LOGIN_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
 	LOGOUT_AT TIMESTAMP NULL
@@ -36,6 +40,32 @@ CREATE TABLE IF NOT EXISTS USER_AUTH(
 
 ALTER TABLE USER_AUTH ADD CONSTRAINT FK_USER_AUTH_USER_ID FOREIGN KEY(USER_ID) REFERENCES USERS(ID) ON DELETE CASCADE ;
 
+--Sessions are looked up by the SHA-256 digest of their access token instead of the token itself
+CREATE UNIQUE INDEX USER_AUTH_ACCESS_TOKEN_DIGEST_IDX ON USER_AUTH(ACCESS_TOKEN_DIGEST);
+
+--Indexes used by the reaper to find expired and signed out sessions, the LOGOUT_AT index is also used by the revoked
+--token filter of every node to poll for new signouts
+CREATE INDEX USER_AUTH_EXPIRES_AT_IDX ON USER_AUTH(EXPIRES_AT);
+CREATE INDEX USER_AUTH_LOGOUT_AT_IDX ON USER_AUTH(LOGOUT_AT) WHERE LOGOUT_AT IS NOT NULL;
+
+--Index used to page through and sign out all the sessions of a user
+CREATE INDEX USER_AUTH_USER_ID_IDX ON USER_AUTH(USER_ID, ID);
+
+--REVOKED_ACCESS_TOKEN table keeps the digests of the unexpired access tokens of deleted users, whose USER_AUTH rows are
+--deleted with them, so that stateless authorization keeps rejecting those tokens until they expire
+DROP TABLE IF EXISTS REVOKED_ACCESS_TOKEN CASCADE;
+CREATE TABLE IF NOT EXISTS REVOKED_ACCESS_TOKEN(
+	ACCESS_TOKEN_DIGEST BYTEA PRIMARY KEY,
+	EXPIRES_AT TIMESTAMP NOT NULL,
+	REVOKED_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+--Index used by the reaper to find expired revoked tokens
+CREATE INDEX REVOKED_ACCESS_TOKEN_EXPIRES_AT_IDX ON REVOKED_ACCESS_TOKEN(EXPIRES_AT);
+
+--Index used by the revoked token filter of every node to poll for newly revoked tokens
+CREATE INDEX REVOKED_ACCESS_TOKEN_REVOKED_AT_IDX ON REVOKED_ACCESS_TOKEN(REVOKED_AT);
+
 --QUESTION table is created to store the questions related information posted by any user in the Application
 DROP TABLE IF EXISTS QUESTION CASCADE;
 CREATE TABLE IF NOT EXISTS QUESTION(
@@ -48,6 +78,13 @@ CREATE TABLE IF NOT EXISTS QUESTION(
     FOREIGN KEY (USER_ID) REFERENCES USERS(ID) ON DELETE CASCADE
 );
 
+--Index used to page through all the questions, newest first
+CREATE INDEX QUESTION_DATE_ID_IDX ON QUESTION(DATE, ID);
+
+--Indexes used to look up a question by its uuid, and to list and tag the questions of a user
+CREATE INDEX QUESTION_UUID_IDX ON QUESTION(UUID);
+CREATE INDEX QUESTION_USER_ID_DATE_ID_IDX ON QUESTION(USER_ID, DATE, ID);
+
 
 --ANSWER table is created to store the answers related information in reply to any question posted in the Application
 DROP TABLE IF EXISTS ANSWER CASCADE;
@@ -62,3 +99,6 @@ CREATE TABLE IF NOT EXISTS ANSWER(
     FOREIGN KEY (USER_ID) REFERENCES USERS(ID) ON DELETE CASCADE,
     FOREIGN KEY (QUESTION_ID) REFERENCES QUESTION(ID) ON DELETE CASCADE
 );
+
+--Index used to list and tag the answers to a question
+CREATE INDEX ANSWER_QUESTION_ID_DATE_ID_IDX ON ANSWER(QUESTION_ID, DATE, ID);
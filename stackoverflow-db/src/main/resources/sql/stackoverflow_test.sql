@@ -14,14 +14,14 @@ INSERT INTO USERS(ID, UUID, FIRST_NAME, LAST_NAME, USERNAME, EMAIL, PASSWORD, SA
 
 
 --Insert values in USER_AUTH table
-INSERT INTO USER_AUTH (ID, UUID, USER_ID, ACCESS_TOKEN, EXPIRES_AT, LOGIN_AT, LOGOUT_AT)
-    VALUES(1024, 'database_uuid', 102, 'database_accesstoken', '2020-04-09 21:07:02.07', '2020-04-08 13:07:02.07', null);
-INSERT INTO USER_AUTH (ID, UUID, USER_ID, ACCESS_TOKEN, EXPIRES_AT, LOGIN_AT, LOGOUT_AT)
-    VALUES(1025 , 'database_uuid1', 103, 'database_accesstoken1', '2020-04-09 21:07:02.07', '2020-04-08 13:07:02.07', null );
-INSERT INTO USER_AUTH (ID, UUID, USER_ID, ACCESS_TOKEN, EXPIRES_AT, LOGIN_AT, LOGOUT_AT)
-    VALUES(1026 , 'database_uuid2', 104, 'database_accesstoken2', '2020-04-09 21:07:02.07', '2020-04-08 13:07:02.07', null );
-INSERT INTO USER_AUTH (ID, UUID, USER_ID, ACCESS_TOKEN, EXPIRES_AT, LOGIN_AT, LOGOUT_AT)
-    VALUES(1027, 'database_uuid3', 105, 'database_accesstoken3', '2020-04-09 21:07:02.07', '2020-04-08 13:07:02.07', '2020-04-08 15:07:02.07' );
+INSERT INTO USER_AUTH (ID, UUID, USER_ID, ACCESS_TOKEN, ACCESS_TOKEN_DIGEST, EXPIRES_AT, LOGIN_AT, LOGOUT_AT)
+    VALUES(1024, 'database_uuid', 102, 'database_accesstoken', sha256(convert_to('database_accesstoken', 'UTF8')), '2020-04-09 21:07:02.07', '2020-04-08 13:07:02.07', null);
+INSERT INTO USER_AUTH (ID, UUID, USER_ID, ACCESS_TOKEN, ACCESS_TOKEN_DIGEST, EXPIRES_AT, LOGIN_AT, LOGOUT_AT)
+    VALUES(1025 , 'database_uuid1', 103, 'database_accesstoken1', sha256(convert_to('database_accesstoken1', 'UTF8')), '2020-04-09 21:07:02.07', '2020-04-08 13:07:02.07', null );
+INSERT INTO USER_AUTH (ID, UUID, USER_ID, ACCESS_TOKEN, ACCESS_TOKEN_DIGEST, EXPIRES_AT, LOGIN_AT, LOGOUT_AT)
+    VALUES(1026 , 'database_uuid2', 104, 'database_accesstoken2', sha256(convert_to('database_accesstoken2', 'UTF8')), '2020-04-09 21:07:02.07', '2020-04-08 13:07:02.07', null );
+INSERT INTO USER_AUTH (ID, UUID, USER_ID, ACCESS_TOKEN, ACCESS_TOKEN_DIGEST, EXPIRES_AT, LOGIN_AT, LOGOUT_AT)
+    VALUES(1027, 'database_uuid3', 105, 'database_accesstoken3', sha256(convert_to('database_accesstoken3', 'UTF8')), '2020-04-09 21:07:02.07', '2020-04-08 13:07:02.07', '2020-04-08 15:07:02.07' );
 
 
 --Insert values in QUESTION table
@@ -0,0 +1,119 @@
+--Converts USER_AUTH into a table partitioned by month of LOGIN_AT.
+--USER_AUTH gets one row per signin and rows are only useful until they expire, so old sessions are removed by dropping
+--whole monthly partitions instead of deleting rows, which leaves no dead tuples behind for vacuum.
+--The script can be run right after stackoverflow.sql or against an existing database; rows already in USER_AUTH are
+--copied into the new partitions. Partitions for the coming months are created by USER_AUTH_CREATE_PARTITIONS and old
+--ones dropped by USER_AUTH_DROP_PARTITIONS, both of which are called periodically by the application.
+--Statements in this file are separated by a line holding a single '/' because the function bodies contain semicolons.
+ALTER TABLE USER_AUTH RENAME TO USER_AUTH_UNPARTITIONED
+/
+
+--Index names are unique per schema, the indexes of the old table are renamed or dropped to free them up
+ALTER INDEX IF EXISTS USER_AUTH_PKEY RENAME TO USER_AUTH_UNPARTITIONED_PKEY
+/
+
+DROP INDEX IF EXISTS USER_AUTH_ACCESS_TOKEN_DIGEST_IDX
+/
+
+--Old sessions go away with their partition, the reaper indexes are not needed on the partitioned table; the LOGOUT_AT
+--index is created again below for the revoked token filter
+DROP INDEX IF EXISTS USER_AUTH_EXPIRES_AT_IDX
+/
+
+DROP INDEX IF EXISTS USER_AUTH_LOGOUT_AT_IDX
+/
+
+DROP INDEX IF EXISTS USER_AUTH_USER_ID_IDX
+/
+
+--The primary key of a partitioned table has to include the partition key, ID alone stays unique through its sequence
+CREATE TABLE USER_AUTH(
+	ID BIGSERIAL NOT NULL,
+	UUID VARCHAR(200) NOT NULL,
+	USER_ID INTEGER NOT NULL,
+	ACCESS_TOKEN VARCHAR(500) NOT NULL,
+	ACCESS_TOKEN_DIGEST BYTEA NOT NULL,
+	EXPIRES_AT TIMESTAMP NOT NULL,
+	LOGIN_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+	LOGOUT_AT TIMESTAMP NULL,
+	PRIMARY KEY(ID, LOGIN_AT),
+	CONSTRAINT FK_USER_AUTH_USER_ID FOREIGN KEY(USER_ID) REFERENCES USERS(ID) ON DELETE CASCADE
+) PARTITION BY RANGE (LOGIN_AT)
+/
+
+--Created on every partition; a unique index would have to include LOGIN_AT. The session write-behind skips a digest
+--which already has a row and the token lookups prefer a signed-out row should a digest still end up with two
+CREATE INDEX USER_AUTH_ACCESS_TOKEN_DIGEST_IDX ON USER_AUTH(ACCESS_TOKEN_DIGEST)
+/
+
+CREATE INDEX USER_AUTH_USER_ID_IDX ON USER_AUTH(USER_ID, ID)
+/
+
+--Used by the revoked token filter of every node to poll for new signouts
+CREATE INDEX USER_AUTH_LOGOUT_AT_IDX ON USER_AUTH(LOGOUT_AT) WHERE LOGOUT_AT IS NOT NULL
+/
+
+--Creates the monthly partitions from the month of FROM_DATE up to MONTHS_AHEAD months after the current one
+CREATE OR REPLACE FUNCTION USER_AUTH_CREATE_PARTITIONS(FROM_DATE TIMESTAMP, MONTHS_AHEAD INTEGER) RETURNS INTEGER
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    PARTITION_START TIMESTAMP := date_trunc('month', FROM_DATE);
+    LAST_START TIMESTAMP := date_trunc('month', CURRENT_TIMESTAMP) + make_interval(months => MONTHS_AHEAD);
+    CREATED INTEGER := 0;
+BEGIN
+    WHILE PARTITION_START <= LAST_START LOOP
+        IF to_regclass('user_auth_p' || to_char(PARTITION_START, 'YYYYMM')) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF USER_AUTH FOR VALUES FROM (%L) TO (%L)',
+                'user_auth_p' || to_char(PARTITION_START, 'YYYYMM'), PARTITION_START, PARTITION_START + INTERVAL '1 month');
+            CREATED := CREATED + 1;
+        END IF;
+        PARTITION_START := PARTITION_START + INTERVAL '1 month';
+    END LOOP;
+    RETURN CREATED;
+END;
+$$
+/
+
+CREATE OR REPLACE FUNCTION USER_AUTH_CREATE_PARTITIONS(MONTHS_AHEAD INTEGER) RETURNS INTEGER
+LANGUAGE sql
+AS $$
+    SELECT USER_AUTH_CREATE_PARTITIONS(CAST(CURRENT_TIMESTAMP AS TIMESTAMP), MONTHS_AHEAD);
+$$
+/
+
+--Drops the monthly partitions which only hold sessions logged in before CUTOFF
+CREATE OR REPLACE FUNCTION USER_AUTH_DROP_PARTITIONS(CUTOFF TIMESTAMP) RETURNS INTEGER
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    PARTITION_NAME TEXT;
+    DROPPED INTEGER := 0;
+BEGIN
+    FOR PARTITION_NAME IN
+        SELECT CHILD.RELNAME FROM PG_INHERITS
+            JOIN PG_CLASS CHILD ON CHILD.OID = PG_INHERITS.INHRELID
+            WHERE PG_INHERITS.INHPARENT = 'user_auth'::regclass AND CHILD.RELNAME ~ '^user_auth_p[0-9]{6}$'
+            ORDER BY CHILD.RELNAME
+    LOOP
+        EXIT WHEN to_date(substring(PARTITION_NAME FROM 12), 'YYYYMM') + INTERVAL '1 month' > CUTOFF;
+        EXECUTE format('DROP TABLE %I', PARTITION_NAME);
+        DROPPED := DROPPED + 1;
+    END LOOP;
+    RETURN DROPPED;
+END;
+$$
+/
+
+SELECT USER_AUTH_CREATE_PARTITIONS(COALESCE((SELECT MIN(LOGIN_AT) FROM USER_AUTH_UNPARTITIONED), CAST(CURRENT_TIMESTAMP AS TIMESTAMP)), 3)
+/
+
+INSERT INTO USER_AUTH (ID, UUID, USER_ID, ACCESS_TOKEN, ACCESS_TOKEN_DIGEST, EXPIRES_AT, LOGIN_AT, LOGOUT_AT)
+    SELECT ID, UUID, USER_ID, ACCESS_TOKEN, ACCESS_TOKEN_DIGEST, EXPIRES_AT, LOGIN_AT, LOGOUT_AT FROM USER_AUTH_UNPARTITIONED
+/
+
+SELECT setval(pg_get_serial_sequence('user_auth', 'id'), GREATEST((SELECT MAX(ID) FROM USER_AUTH), 1))
+/
+
+DROP TABLE USER_AUTH_UNPARTITIONED CASCADE
+/
@@ -3,15 +3,17 @@ package com.upgrad.stackoverflow.service;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Enabling the component scan and entity scan of classes in the below mentioned
  *           "com.upgrad.stackoverflow.service"
  *           "com.upgrad.stackoverflow.service.entity"
- * packages respectively.
+ * packages respectively, and the scheduled maintenance tasks of the service layer.
  */
 @Configuration
 @ComponentScan("com.upgrad.stackoverflow.service")
 @EntityScan("com.upgrad.stackoverflow.service.entity")
+@EnableScheduling
 public class ServiceConfiguration {
 }
@@ -5,9 +5,10 @@
 
 package com.upgrad.stackoverflow.service.business;
 
+import com.upgrad.stackoverflow.service.common.AuthenticatedUser;
 import com.upgrad.stackoverflow.service.dao.AdminDao;
-import com.upgrad.stackoverflow.service.dao.UserDao;
-import com.upgrad.stackoverflow.service.entity.UserAuthEntity;
+import com.upgrad.stackoverflow.service.dao.RevokedTokenFilter;
+import com.upgrad.stackoverflow.service.dao.UserAuthCache;
 import com.upgrad.stackoverflow.service.entity.UserEntity;
 import com.upgrad.stackoverflow.service.exception.AuthorizationFailedException;
 import com.upgrad.stackoverflow.service.exception.UserNotFoundException;
@@ -18,10 +19,14 @@ import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class AdminBusinessService {
-    @Autowired
-    private UserDao userDao;
     @Autowired
     private AdminDao adminDao;
+    @Autowired
+    private UserAuthCache userAuthCache;
+    @Autowired
+    private RevokedTokenFilter revokedTokenFilter;
+    @Autowired
+    private QuestionFeedCache questionFeedCache;
 
     public AdminBusinessService() {
     }
@@ -29,17 +34,16 @@ public class AdminBusinessService {
     @Transactional(
             propagation = Propagation.REQUIRED
     )
-    public UserEntity deleteUser(String authorization, String uuid) throws AuthorizationFailedException, UserNotFoundException {
-        UserAuthEntity userAuthEntity = this.userDao.getUserAuthByAccesstoken(authorization);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", "User is signed out");
-        } else if (userAuthEntity.getUser().getRole().equals("admin")) {
+    public UserEntity deleteUser(AuthenticatedUser user, String uuid) throws AuthorizationFailedException, UserNotFoundException {
+        if (user.isAdmin()) {
             UserEntity userEntity = this.adminDao.getUserByUuid(uuid);
             if (userEntity == null) {
                 throw new UserNotFoundException("USR-001", "User with entered uuid to be deleted does not exist");
             } else {
+                this.userAuthCache.invalidateUser(userEntity.getId());
+                this.revokedTokenFilter.revokeDeletedUser(userEntity);
+                // the questions of the user are deleted with it
+                this.questionFeedCache.invalidate();
                 return this.adminDao.deleteUser(userEntity);
             }
         } else {
@@ -1,21 +1,29 @@
 package com.upgrad.stackoverflow.service.business;
 
 
+import com.upgrad.stackoverflow.service.common.AuthenticatedUser;
+import com.upgrad.stackoverflow.service.common.EntityTag;
+import com.upgrad.stackoverflow.service.common.SingleFlight;
 import com.upgrad.stackoverflow.service.dao.AnswerDao;
 import com.upgrad.stackoverflow.service.dao.UserDao;
 import com.upgrad.stackoverflow.service.entity.AnswerEntity;
 import com.upgrad.stackoverflow.service.entity.QuestionEntity;
-import com.upgrad.stackoverflow.service.entity.UserAuthEntity;
 import com.upgrad.stackoverflow.service.exception.AnswerNotFoundException;
 import com.upgrad.stackoverflow.service.exception.AuthorizationFailedException;
 import com.upgrad.stackoverflow.service.exception.InvalidQuestionException;
+import com.upgrad.stackoverflow.service.projection.QuestionAnswers;
+import com.upgrad.stackoverflow.service.projection.QuestionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.persistence.TypedQuery;
 import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Objects;
 
 @Service
 public class AnswerBusinessService {
@@ -27,26 +35,27 @@ public class AnswerBusinessService {
     @Autowired
     private AnswerDao answerDao;
 
+    private final TransactionTemplate readOnlyTransactionTemplate;
 
     /**
-     * The method implements the business logic for createAnswer endpoint.
+     * Concurrent listings of the answers to the same question at the same entity tag share one read.
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public AnswerEntity createAnswer(AnswerEntity answerEntity, String authorization) throws AuthorizationFailedException {
+    private final SingleFlight<AnswersLoad, QuestionAnswers, RuntimeException> answersByQuestion;
 
-        UserAuthEntity userAuthEntity = userDao.getUserAuthByAccesstoken(authorization);
-        if(userAuthEntity==null){
-            throw new AuthorizationFailedException("ATHR-001","user is not signed in");
-        }
-        else if(userAuthEntity.getLogoutAt()!=null){
-            throw new AuthorizationFailedException("ATHR-002","user has already signed out");
-        }
-        else {
-            answerEntity.setDate(ZonedDateTime.now());
-            answerEntity.setUser(userAuthEntity.getUser());
-            return  answerDao.createAnswer(answerEntity);
-        }
+    public AnswerBusinessService(final PlatformTransactionManager transactionManager, final MeterRegistry meterRegistry) {
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.answersByQuestion = new SingleFlight<>("answersByQuestion", RuntimeException.class, meterRegistry);
+    }
 
+    /**
+     * The method implements the business logic for createAnswer endpoint.
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public AnswerEntity createAnswer(AnswerEntity answerEntity, AuthenticatedUser user) {
+        answerEntity.setDate(ZonedDateTime.now());
+        answerEntity.setUser(userDao.getUserReference(user.getId()));
+        return  answerDao.createAnswer(answerEntity);
     }
 
     public QuestionEntity getQuestionByUuid(String Uuid) throws InvalidQuestionException {
@@ -65,77 +74,101 @@ public class AnswerBusinessService {
      * The method implements the business logic for editAnswerContent endpoint.
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public AnswerEntity editAnswerContent(AnswerEntity answerEntity, String answerId, String authorization) throws AuthorizationFailedException, AnswerNotFoundException {
-        UserAuthEntity userAuthEntity = userDao.getUserAuthByAccesstoken(authorization);
-        if(userAuthEntity==null){
-            throw new AuthorizationFailedException("ATHR-001","user is not signed in");
+    public AnswerEntity editAnswerContent(AnswerEntity answerEntity, String answerId, AuthenticatedUser user) throws AuthorizationFailedException, AnswerNotFoundException {
+        AnswerEntity answerEntity1=answerDao.getAnswerByUuid(answerId);
+        if(answerEntity1==null){
+            throw new AnswerNotFoundException("ANS-001","answer with this user id does not exist in database");
         }
-        else if(userAuthEntity.getLogoutAt()!=null)
+        else if(!answerEntity1.getUser().getId().equals(user.getId()))
         {
-            throw new AuthorizationFailedException("ATHR-002","user has already signed out");
+            throw new AuthorizationFailedException("ATHR-003","only the answer owner can edit the answer");
         }
-        else{
-            AnswerEntity answerEntity1=answerDao.getAnswerByUuid(answerId);
-            if(answerEntity1==null){
-                throw new AnswerNotFoundException("ANS-001","answer with this user id does not exist in database");
-            }
-            else if(answerEntity1.getUser()!=userAuthEntity.getUser())
-            {
-                throw new AuthorizationFailedException("ATHR-003","user has already signed out");
-            }
-            else {
-                answerEntity1.setAns(answerEntity.getAns());
-                answerEntity1.setDate(ZonedDateTime.now());
-                return answerDao.editAnswer(answerEntity1);
-            }
+        else {
+            answerEntity1.setAns(answerEntity.getAns());
+            answerEntity1.setDate(ZonedDateTime.now());
+            return answerDao.editAnswer(answerEntity1);
         }
-
     }
 
     /**
      * The method implements the business logic for deleteAnswer endpoint.
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public AnswerEntity deleteAnswer(String answerId, String authorization) throws AuthorizationFailedException, AnswerNotFoundException {
-        UserAuthEntity userAuthEntity = userDao.getUserAuthByAccesstoken(authorization);
-        if(userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "user is not signed in");
-        }
-        else if(userAuthEntity.getLogoutAt()!=null) {
-            throw new AuthorizationFailedException("ATHR-002", "user has already signed out");
-        }
-        else {
-            AnswerEntity answerEntity = this.answerDao.getAnswerByUuid(answerId);
-            if (answerEntity == null) {
-                throw new AnswerNotFoundException("ANS-001", "answer with this user id does not exist in database");
-            } else if (userAuthEntity.getUser() != answerEntity.getUser() && !userAuthEntity.getUser().getRole().equals("admin")) {
-                throw new AuthorizationFailedException("ATHR-003", "only the answer owner or admin can delete the answer");
-            } else {
-                return this.answerDao.deleteAnswer(answerEntity);
-            }
+    public AnswerEntity deleteAnswer(String answerId, AuthenticatedUser user) throws AuthorizationFailedException, AnswerNotFoundException {
+        AnswerEntity answerEntity = this.answerDao.getAnswerByUuid(answerId);
+        if (answerEntity == null) {
+            throw new AnswerNotFoundException("ANS-001", "answer with this user id does not exist in database");
+        } else if (!user.getId().equals(answerEntity.getUser().getId()) && !user.isAdmin()) {
+            throw new AuthorizationFailedException("ATHR-003", "only the answer owner or admin can delete the answer");
+        } else {
+            return this.answerDao.deleteAnswer(answerEntity);
         }
+    }
 
+    /**
+     * The method implements the business logic for getAllAnswersToQuestion endpoint. Callers asking for the same
+     * question at the same time share one read of it, each of them has still been authorized on its own.
+     *
+     * Only callers which read the same entity tag share a read, and every read starts after its tag was read, so a
+     * caller never gets answers older than its tag, which would make it revalidate a stale listing with 304.
+     *
+     * @param entityTag entity tag of the answers read by getAnswersByQuestionEntityTag before this call.
+     */
+    public QuestionAnswers getAnswersByQuestion(String questionId, String entityTag) throws InvalidQuestionException {
+        QuestionAnswers questionAnswers = this.answersByQuestion.execute(new AnswersLoad(questionId, entityTag),
+                () -> this.readOnlyTransactionTemplate.execute(status -> loadAnswersByQuestion(questionId)));
+        if (questionAnswers == null) {
+            throw new InvalidQuestionException("QUES-001", "question with this id does not exist in database");
+        }
+        return questionAnswers;
     }
 
     /**
-     * The method implements the business logic for getAllAnswersToQuestion endpoint.
+     * Returns the entity tag of the answers to a question from one aggregate query, so that an unchanged listing can
+     * be answered with 304 without reading the answers.
+     *
+     * @return the entity tag, null if there is no such question.
      */
-    public TypedQuery<AnswerEntity> getAnswersByQuestion(String questionId, String authorization) throws AuthorizationFailedException, InvalidQuestionException {
-        UserAuthEntity userAuthEntity = userDao.getUserAuthByAccesstoken(authorization);
-        if(userAuthEntity==null) {
-            throw new AuthorizationFailedException("ATHR-001", "user is not signed in");
+    @Transactional(readOnly = true)
+    public String getAnswersByQuestionEntityTag(String questionId) {
+        Object[] version = this.answerDao.getAnswersByQuestionVersion(questionId);
+        return version == null ? null : EntityTag.of(version);
+    }
+
+    private QuestionAnswers loadAnswersByQuestion(String questionId) {
+        QuestionSummary question = this.answerDao.getQuestionSummaryByUuid(questionId);
+        if (question == null) {
+            return null;
         }
-        else if(userAuthEntity.getLogoutAt()!=null) {
-            throw new AuthorizationFailedException("ATHR-002", "user has already signed out");
+        return new QuestionAnswers(question, Collections.unmodifiableList(this.answerDao.getAnswersByQuestion(question.getId())));
+    }
+
+    private static final class AnswersLoad {
+
+        private final String questionId;
+
+        private final String entityTag;
+
+        AnswersLoad(final String questionId, final String entityTag) {
+            this.questionId = questionId;
+            this.entityTag = entityTag;
         }
-        else {
-            QuestionEntity questionEntity = this.answerDao.getQuestionByUuid(questionId);
-            if (questionEntity == null) {
-                throw new InvalidQuestionException("QUES-001", "question with this id does not exist in database");
-            } else {
-                return this.answerDao.getAnswersByQuestion(questionEntity);
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
             }
+            if (!(o instanceof AnswersLoad)) {
+                return false;
+            }
+            final AnswersLoad answersLoad = (AnswersLoad) o;
+            return questionId.equals(answersLoad.questionId) && Objects.equals(entityTag, answersLoad.entityTag);
         }
 
+        @Override
+        public int hashCode() {
+            return 31 * questionId.hashCode() + Objects.hashCode(entityTag);
+        }
     }
 }
\ No newline at end of file
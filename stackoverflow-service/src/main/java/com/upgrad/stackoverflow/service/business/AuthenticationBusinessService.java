@@ -0,0 +1,146 @@
+package com.upgrad.stackoverflow.service.business;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.upgrad.stackoverflow.service.common.AuthenticatedUser;
+import com.upgrad.stackoverflow.service.common.JwtKeyRing;
+import com.upgrad.stackoverflow.service.common.JwtTokenProvider;
+import com.upgrad.stackoverflow.service.common.TokenDigest;
+import com.upgrad.stackoverflow.service.dao.RevokedTokenFilter;
+import com.upgrad.stackoverflow.service.dao.UserDao;
+import com.upgrad.stackoverflow.service.entity.UserAuthEntity;
+import com.upgrad.stackoverflow.service.entity.UserEntity;
+import com.upgrad.stackoverflow.service.exception.AuthorizationFailedException;
+import com.upgrad.stackoverflow.service.projection.UserAuthSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+
+/**
+ * AuthenticationBusinessService resolves the access token sent in the authorization header into the session it belongs to.
+ *
+ * By default every session is read from the USER_AUTH table. In stateless mode, tokens signed by the server-side
+ * key ring are trusted once their signature, issuer and expiry are verified. The database is only asked about
+ * tokens which the revoked token filter reports as possibly signed out. Tokens which were not signed by the key ring are still looked up in
+ * USER_AUTH so that sessions issued before the mode was switched on keep working.
+ *
+ * authenticate is called once per request by the authentication filter of the API and performs the signed in and
+ * signed out checks for every endpoint which requires a user.
+ */
+@Service
+public class AuthenticationBusinessService {
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private JwtKeyRing jwtKeyRing;
+
+    @Autowired
+    private RevokedTokenFilter revokedTokenFilter;
+
+    @Value("${stackoverflow.auth.stateless.enabled:false}")
+    private boolean statelessEnabled;
+
+    @PostConstruct
+    public void checkConfiguration() {
+        if (statelessEnabled && !jwtKeyRing.hasActiveKey()) {
+            throw new IllegalStateException("Stateless authentication requires stackoverflow.auth.jwt.active-key-id to be set");
+        }
+    }
+
+    public boolean isStatelessEnabled() {
+        return statelessEnabled;
+    }
+
+    /**
+     * @param accessToken JWT token from the authorization header.
+     * @return the principal of the signed in user.
+     * @throws AuthorizationFailedException ATHR-001 if the user has not signed in with this token, ATHR-002 if the user has signed out.
+     */
+    public AuthenticatedUser authenticate(final String accessToken) throws AuthorizationFailedException {
+        final UserAuthSession session = accessToken == null ? null : getSession(accessToken);
+        if (session == null) {
+            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
+        } else if (session.getLogoutAt() != null) {
+            throw new AuthorizationFailedException("ATHR-002", "User is signed out. Sign in first");
+        }
+        return new AuthenticatedUser(session.getUserId(), session.getUserUuid(), session.getRole());
+    }
+
+    /**
+     * @param accessToken JWT token from the authorization header.
+     * @return the session of the token, or null if the user has not signed in with this token.
+     */
+    public UserAuthSession getSession(final String accessToken) {
+        final JwtTokenProvider jwtTokenProvider = statelessEnabled ? jwtKeyRing.getProvider(accessToken) : null;
+        if (jwtTokenProvider == null) {
+            return userDao.getUserAuthSessionByAccessToken(accessToken);
+        }
+
+        final DecodedJWT decodedJWT;
+        try {
+            decodedJWT = jwtTokenProvider.verifyToken(accessToken);
+        } catch (JWTVerificationException e) {
+            return null;
+        }
+
+        ZonedDateTime logoutAt = null;
+        if (revokedTokenFilter.mightBeRevoked(accessToken)) {
+            final UserAuthSession storedSession = userDao.getUserAuthSessionByAccessToken(accessToken);
+            if (storedSession == null) {
+                return null;
+            }
+            logoutAt = storedSession.getLogoutAt();
+        }
+
+        return new UserAuthSession(decodedJWT.getClaim(JwtTokenProvider.USER_ID_CLAIM).asInt(),
+                decodedJWT.getAudience().get(0),
+                decodedJWT.getClaim(JwtTokenProvider.ROLE_CLAIM).asString(),
+                toZonedDateTime(decodedJWT.getExpiresAt()),
+                logoutAt);
+    }
+
+    /**
+     * Rebuilds the USER_AUTH row of a verified stateless token whose row is missing, e.g. because it was lost by
+     * write-behind in a crash, so that the session can still be signed out. The returned entity is not persisted.
+     *
+     * @param accessToken JWT token from the authorization header.
+     * @return the session as it was issued, or null if the token is not a valid stateless token or its user has been
+     * deleted.
+     */
+    public UserAuthEntity restoreUserAuth(final String accessToken) {
+        final JwtTokenProvider jwtTokenProvider = statelessEnabled ? jwtKeyRing.getProvider(accessToken) : null;
+        if (jwtTokenProvider == null) {
+            return null;
+        }
+        final DecodedJWT decodedJWT;
+        try {
+            decodedJWT = jwtTokenProvider.verifyToken(accessToken);
+        } catch (JWTVerificationException e) {
+            return null;
+        }
+        // a token outlives the deletion of its user, whose USER_AUTH rows are deleted with it
+        final UserEntity userEntity = userDao.getUserById(decodedJWT.getClaim(JwtTokenProvider.USER_ID_CLAIM).asInt());
+        if (userEntity == null) {
+            return null;
+        }
+        final UserAuthEntity userAuthEntity = new UserAuthEntity();
+        userAuthEntity.setUser(userEntity);
+        userAuthEntity.setUuid(decodedJWT.getAudience().get(0));
+        userAuthEntity.setAccessToken(accessToken);
+        userAuthEntity.setAccessTokenDigest(TokenDigest.of(accessToken));
+        userAuthEntity.setLoginAt(toZonedDateTime(decodedJWT.getIssuedAt()));
+        userAuthEntity.setExpiresAt(toZonedDateTime(decodedJWT.getExpiresAt()));
+        return userAuthEntity;
+    }
+
+    private static ZonedDateTime toZonedDateTime(final Date date) {
+        return date == null ? null : ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    }
+}
@@ -5,38 +5,40 @@
 
 package com.upgrad.stackoverflow.service.business;
 
+import com.upgrad.stackoverflow.service.common.EntityTag;
 import com.upgrad.stackoverflow.service.dao.CommonDao;
-import com.upgrad.stackoverflow.service.dao.UserDao;
-import com.upgrad.stackoverflow.service.entity.UserAuthEntity;
 import com.upgrad.stackoverflow.service.entity.UserEntity;
-import com.upgrad.stackoverflow.service.exception.AuthorizationFailedException;
 import com.upgrad.stackoverflow.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class CommonBusinessService {
-    @Autowired
-    private UserDao userDao;
     @Autowired
     private CommonDao commonDao;
 
     public CommonBusinessService() {
     }
 
-    public UserEntity getUser(String uuid, String authorization) throws UserNotFoundException, AuthorizationFailedException {
-        UserAuthEntity userAuthEntity = this.userDao.getUserAuthByAccesstoken(authorization);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", "User has signed out. Sign in first to get user details");
+    /**
+     * Returns the entity tag of the profile of a user, computed from the id of the user row and every profile column
+     * the endpoint returns, so that the tag changes whenever the response would, however the row is updated.
+     *
+     * @return the entity tag, null if there is no such user.
+     */
+    @Transactional(readOnly = true)
+    public String getUserEntityTag(String uuid) {
+        Object[] profile = this.commonDao.getUserProfileByUuid(uuid);
+        return profile == null ? null : EntityTag.of(profile);
+    }
+
+    public UserEntity getUser(String uuid) throws UserNotFoundException {
+        UserEntity userEntity = this.commonDao.getUserByUuid(uuid);
+        if (userEntity == null) {
+            throw new UserNotFoundException("USR-001", "User with entered uuid does not exist");
         } else {
-            UserEntity userEntity = this.commonDao.getUserByUuid(uuid);
-            if (userEntity == null) {
-                throw new UserNotFoundException("USR-001", "User with entered uuid does not exist");
-            } else {
-                return userEntity;
-            }
+            return userEntity;
         }
     }
 }
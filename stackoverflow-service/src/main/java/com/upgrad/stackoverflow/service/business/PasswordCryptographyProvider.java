@@ -1,26 +1,113 @@
 package com.upgrad.stackoverflow.service.business;
 
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Random;
 
-
+/**
+ * PasswordCryptographyProvider hashes passwords with PBKDF2WithHmacSHA512.
+ *
+ * Hashed passwords are stored as "$pbkdf2-sha512$<iterations>$<key length in bits>$<hex hash>", so every stored hash
+ * carries the cost it was made with and hashes of different costs can live side by side. Passwords stored before the
+ * format was introduced are plain hex hashes of 1000 iterations and 64 bits, and are still accepted.
+ *
+ * New hashes use the configured number of iterations, which is the same on every node, so that a signin on one node
+ * never undoes or redoes the upgrade made by another. needsRehash tells whether a stored hash was made with a lower
+ * cost, so that it can be upgraded the next time the user signs in with the raw password. At startup the number of
+ * iterations which would take the configured target latency on this hardware is measured and logged, as a hint for
+ * choosing the configured cost; it is never used on its own.
+ */
 @Component
 public class PasswordCryptographyProvider {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(PasswordCryptographyProvider.class);
+
     private static String SECRET_KEY_ALGORITHM = "PBKDF2WithHmacSHA512";
-    private static int HASHING_ITERATIONS = 1000;
-    private static int HASHING_KEY_LENGTH = 64;
+    private static final String HASH_PREFIX = "$pbkdf2-sha512$";
+    private static int LEGACY_HASHING_ITERATIONS = 1000;
+    private static int LEGACY_HASHING_KEY_LENGTH = 64;
+    private static final int CALIBRATION_ITERATIONS = 10000;
+    private static final int CALIBRATION_ROUNDS = 5;
     private final static char[] hexArray = "0123456789ABCDEF".toCharArray();
 
+    /**
+     * SecretKeyFactory.getInstance walks the registered security providers on every call, each hashing thread
+     * looks the factory up once and keeps it. Factories are not thread-safe, so they cannot be shared.
+     */
+    private static final ThreadLocal<SecretKeyFactory> SECRET_KEY_FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    private final int keyLength;
+
+    private final Duration targetLatency;
+
+    private final int iterations;
+
+    /**
+     * @param iterations    PBKDF2 iterations of new hashes.
+     * @param keyLength     length in bits of new hashes.
+     * @param targetLatency time one hash should take, only used to log the matching number of iterations, zero to skip.
+     */
+    @Autowired
+    public PasswordCryptographyProvider(@Value("${stackoverflow.auth.password-hashing.iterations:100000}") final int iterations,
+                                        @Value("${stackoverflow.auth.password-hashing.key-length:512}") final int keyLength,
+                                        @Value("${stackoverflow.auth.password-hashing.target-latency:50ms}") final Duration targetLatency) {
+        this.iterations = iterations;
+        this.keyLength = keyLength;
+        this.targetLatency = targetLatency;
+    }
+
+    /**
+     * Creates a provider with a fixed cost, outside of the application context.
+     */
+    public PasswordCryptographyProvider(final int iterations, final int keyLength) {
+        this(iterations, keyLength, Duration.ZERO);
+    }
+
+    @PostConstruct
+    public void calibrate() {
+        LOGGER.info("Hashing new passwords with {} PBKDF2 iterations", iterations);
+        if (targetLatency.isZero()) {
+            return;
+        }
+        final char[] password = "calibration".toCharArray();
+        final byte[] salt = generateSaltBytes();
+        // the first rounds run in the interpreter, only the fastest round is representative of the compiled code
+        long fastest = Long.MAX_VALUE;
+        for (int round = 0; round < CALIBRATION_ROUNDS; round++) {
+            final long start = System.nanoTime();
+            hashPassword(password.clone(), salt, CALIBRATION_ITERATIONS, keyLength);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        final long calibrated = targetLatency.toNanos() * CALIBRATION_ITERATIONS / Math.max(1, fastest);
+        LOGGER.info("About {} PBKDF2 iterations take {} ms per hash on this node, {} iterations are configured",
+                Math.min(Integer.MAX_VALUE, calibrated / 1000 * 1000), targetLatency.toMillis(), iterations);
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
     /**
      * This method generates Salt and hashed Password
      *
@@ -29,20 +116,53 @@ public class PasswordCryptographyProvider {
      */
     public String[] encrypt(final String password) {
         byte[] salt = generateSaltBytes();
-        byte[] hashedPassword = hashPassword(password.toCharArray(), salt);
-        return new String[]{getBase64EncodedBytesAsString(salt), bytesToHex(hashedPassword)};
+        byte[] hashedPassword = hashPassword(password.toCharArray(), salt, iterations, keyLength);
+        return new String[]{getBase64EncodedBytesAsString(salt),
+                HASH_PREFIX + iterations + "$" + keyLength + "$" + bytesToHex(hashedPassword)};
     }
 
     /**
-     * This method re-generates hashed Password from raw-password and salt.
-     * This will be used during authentication.
+     * This method tells whether a stored hashed Password was made with a lower cost than new ones.
      *
-     * @param password char array.
-     * @param salt     byte array.
-     * @return byte array of hashed password.
+     * @param hashedPassword stored hashed password of the user.
+     * @return true if the password should be hashed again.
+     */
+    public boolean needsRehash(final String hashedPassword) {
+        final String[] parameters = parse(hashedPassword);
+        return parameters == null
+                || Integer.parseInt(parameters[0]) < iterations
+                || Integer.parseInt(parameters[1]) != keyLength;
+    }
+
+    /**
+     * This method checks a raw-password against the hashed Password stored for the user, with the cost the stored
+     * hash was made with. The hashes are compared in constant time, directly against the stored hex string.
+     *
+     * @param password       raw password.
+     * @param salt           base64 encoded salt of the user.
+     * @param hashedPassword stored hashed password of the user.
+     * @return true if the password matches.
+     */
+    public static boolean matches(final String password, final String salt, final String hashedPassword) {
+        final String[] parameters = parse(hashedPassword);
+        final int hashIterations = parameters == null ? LEGACY_HASHING_ITERATIONS : Integer.parseInt(parameters[0]);
+        final int hashKeyLength = parameters == null ? LEGACY_HASHING_KEY_LENGTH : Integer.parseInt(parameters[1]);
+        final String hex = parameters == null ? hashedPassword : parameters[2];
+        return hexEquals(hashPassword(password.toCharArray(), getBase64DecodedStringAsBytes(salt), hashIterations, hashKeyLength), hex);
+    }
+
+    /**
+     * @return [0] iterations [1] key length [2] hex hash of a versioned hashed password, null for a legacy one.
      */
-    public static String encrypt(final String password, String salt) {
-        return bytesToHex(hashPassword(password.toCharArray(), getBase64DecodedStringAsBytes(salt)));
+    private static String[] parse(final String hashedPassword) {
+        if (hashedPassword == null || !hashedPassword.startsWith(HASH_PREFIX)) {
+            return null;
+        }
+        final String[] parameters = hashedPassword.substring(HASH_PREFIX.length()).split("\\$");
+        if (parameters.length != 3) {
+            throw new IllegalArgumentException("Malformed hashed password");
+        }
+        return parameters;
     }
 
     /**
@@ -60,20 +180,41 @@ public class PasswordCryptographyProvider {
     /**
      * This method generates hashed Password
      *
-     * @param password char array.
-     * @param salt     byte array.
+     * @param password   char array.
+     * @param salt       byte array.
+     * @param iterations PBKDF2 iterations.
+     * @param keyLength  length of the hash in bits.
      * @return byte array of hashed password.
      */
-    private static byte[] hashPassword(final char[] password, final byte[] salt) {
+    private static byte[] hashPassword(final char[] password, final byte[] salt, final int iterations, final int keyLength) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, keyLength);
         try {
-            SecretKeyFactory skf = SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
-            PBEKeySpec spec = new PBEKeySpec(password, salt, HASHING_ITERATIONS, HASHING_KEY_LENGTH);
-            SecretKey key = skf.generateSecret(spec);
+            SecretKey key = SECRET_KEY_FACTORY.get().generateSecret(spec);
             byte[] res = key.getEncoded();
             return res;
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+        } catch (InvalidKeySpecException e) {
             throw new RuntimeException(e);
+        } finally {
+            spec.clearPassword();
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    /**
+     * Compares bytes with their upper case hex encoding without building the hex string. Takes the same time
+     * wherever the first difference is, so the comparison does not leak how much of a hash matched.
+     */
+    private static boolean hexEquals(final byte[] bytes, final String hex) {
+        if (hex == null || hex.length() != bytes.length * 2) {
+            return false;
+        }
+        int difference = 0;
+        for (int j = 0; j < bytes.length; j++) {
+            int v = bytes[j] & 0xFF;
+            difference |= hexArray[v >>> 4] ^ hex.charAt(j * 2);
+            difference |= hexArray[v & 0x0F] ^ hex.charAt(j * 2 + 1);
         }
+        return difference == 0;
     }
 
     private static String bytesToHex(byte[] bytes) {
@@ -94,5 +235,3 @@ public class PasswordCryptographyProvider {
         return Base64.getDecoder().decode(decode);
     }
 }
-
-
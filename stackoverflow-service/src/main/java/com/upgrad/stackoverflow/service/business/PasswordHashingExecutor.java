@@ -0,0 +1,101 @@
+package com.upgrad.stackoverflow.service.business;
+
+import com.upgrad.stackoverflow.service.exception.ServiceBusyException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * PasswordHashingExecutor runs the deliberately slow password hashing of signup and signin on a small dedicated
+ * thread pool with a bounded queue, so that a burst of signins cannot occupy every request thread.
+ *
+ * When the pool and its queue are full, hashing is refused right away with a ServiceBusyException instead of
+ * queueing without limit. Queue depth and pool usage are published under the "passwordHashing" executor name and
+ * the time spent hashing as "stackoverflow.auth.password.hash".
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private final PasswordCryptographyProvider passwordCryptographyProvider;
+
+    private final ExecutorService executor;
+
+    private final ThreadPoolExecutor threadPoolExecutor;
+
+    private final Timer hashTimer;
+
+    public PasswordHashingExecutor(final PasswordCryptographyProvider passwordCryptographyProvider,
+                                   @Value("${stackoverflow.auth.password-hashing.threads:0}") final int threads,
+                                   @Value("${stackoverflow.auth.password-hashing.queue-capacity:64}") final int queueCapacity,
+                                   final MeterRegistry meterRegistry) {
+        this.passwordCryptographyProvider = passwordCryptographyProvider;
+        final int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.threadPoolExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, threadPoolExecutor, "passwordHashing", Collections.emptyList());
+        this.hashTimer = meterRegistry.timer("stackoverflow.auth.password.hash");
+    }
+
+    /**
+     * Generates a salt and hashes the password on the hashing pool.
+     *
+     * @return future of the String array with [0] encoded salt [1] hashed password, completed exceptionally with a
+     * ServiceBusyException if the hashing pool is saturated.
+     */
+    public CompletableFuture<String[]> encrypt(final String password) {
+        return submit(() -> passwordCryptographyProvider.encrypt(password));
+    }
+
+    /**
+     * Checks the raw password against the hashed password of the user on the hashing pool.
+     *
+     * @return future of the result of the check, completed exceptionally with a ServiceBusyException if the hashing
+     * pool is saturated.
+     */
+    public CompletableFuture<Boolean> matches(final String password, final String salt, final String hashedPassword) {
+        return submit(() -> PasswordCryptographyProvider.matches(password, salt, hashedPassword));
+    }
+
+    private <T> CompletableFuture<T> submit(final Supplier<T> hashing) {
+        try {
+            return CompletableFuture.supplyAsync(() -> hashTimer.record(hashing), executor);
+        } catch (RejectedExecutionException e) {
+            final CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new CompletionException(
+                    new ServiceBusyException("SRV-001", "Too many signins in progress, please retry shortly")));
+            return rejected;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        threadPoolExecutor.shutdown();
+    }
+
+    private static class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
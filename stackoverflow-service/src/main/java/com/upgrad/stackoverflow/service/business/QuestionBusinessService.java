@@ -1,21 +1,32 @@
 package com.upgrad.stackoverflow.service.business;
 
 
+import com.upgrad.stackoverflow.service.common.AuthenticatedUser;
+import com.upgrad.stackoverflow.service.common.EntityTag;
+import com.upgrad.stackoverflow.service.common.PageCursor;
+import com.upgrad.stackoverflow.service.dao.AnswerDao;
 import com.upgrad.stackoverflow.service.dao.QuestionDao;
 import com.upgrad.stackoverflow.service.dao.UserDao;
 import com.upgrad.stackoverflow.service.entity.QuestionEntity;
-import com.upgrad.stackoverflow.service.entity.UserAuthEntity;
-import com.upgrad.stackoverflow.service.entity.UserEntity;
 import com.upgrad.stackoverflow.service.exception.AuthorizationFailedException;
+import com.upgrad.stackoverflow.service.exception.InvalidCursorException;
 import com.upgrad.stackoverflow.service.exception.InvalidQuestionException;
 import com.upgrad.stackoverflow.service.exception.UserNotFoundException;
+import com.upgrad.stackoverflow.service.projection.AnswerSummary;
+import com.upgrad.stackoverflow.service.projection.QuestionAnswersPage;
+import com.upgrad.stackoverflow.service.projection.QuestionPage;
+import com.upgrad.stackoverflow.service.projection.QuestionSummary;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import javax.persistence.TypedQuery;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public class QuestionBusinessService {
@@ -23,6 +34,14 @@ public class QuestionBusinessService {
     private UserDao userDao;
     @Autowired
     private QuestionDao questionDao;
+    @Autowired
+    private AnswerDao answerDao;
+    @Autowired
+    private QuestionFeedCache questionFeedCache;
+    @Value("${stackoverflow.question.page.default-size:20}")
+    private int defaultPageSize;
+    @Value("${stackoverflow.question.page.max-size:100}")
+    private int maxPageSize;
 
     public QuestionBusinessService() {
     }
@@ -33,31 +52,57 @@ public class QuestionBusinessService {
     @Transactional(
             propagation = Propagation.REQUIRED
     )
-    public QuestionEntity createQuestion(QuestionEntity questionEntity, String authorization) throws AuthorizationFailedException {
-        UserAuthEntity userAuthEntity = this.userDao.getUserAuthByAccesstoken(authorization);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", "User is signed out. Sign in first to post a question");
-        } else {
-            questionEntity.setDate(ZonedDateTime.now());
-            questionEntity.setUser(userAuthEntity.getUser());
-            return this.questionDao.createQuestion(questionEntity);
-        }
+    public QuestionEntity createQuestion(QuestionEntity questionEntity, AuthenticatedUser user) {
+        questionEntity.setDate(ZonedDateTime.now());
+        questionEntity.setUser(this.userDao.getUserReference(user.getId()));
+        this.questionFeedCache.invalidate();
+        return this.questionDao.createQuestion(questionEntity);
     }
 
     /**
-     * The method implements the business logic for getAllQuestions endpoint.
+     * The method implements the business logic for getAllQuestions endpoint. Pages are served from the question
+     * feed cache, which reads them in its own read-only transaction.
+     *
+     * @param cursor next_cursor of the previous page, null for the first page.
+     * @param limit  maximum number of questions in the page, null for the default page size.
      */
-    public TypedQuery<QuestionEntity> getQuestions(String authorization) throws AuthorizationFailedException {
-        UserAuthEntity userAuthEntity = this.userDao.getUserAuthByAccesstoken(authorization);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", "User is signed out. Sign in first to get all questions");
-        } else {
-            return this.questionDao.getQuestions();
+    public QuestionPage getQuestions(String cursor, Integer limit) throws InvalidCursorException {
+        return this.questionFeedCache.get(after(cursor), pageSize(limit));
+    }
+
+    /**
+     * The method implements the business logic for getQuestionWithAnswers endpoint. The question and one page of its
+     * answers are read with two statements in one read-only transaction, one more answer than the page is read so
+     * that the last page is known without a further request.
+     *
+     * @param cursor next_cursor of the previous page of answers, null for the first page.
+     * @param limit  maximum number of answers in the page, null for the default page size.
+     */
+    @Transactional(readOnly = true)
+    public QuestionAnswersPage getQuestionWithAnswers(String questionId, String cursor, Integer limit) throws InvalidQuestionException, InvalidCursorException {
+        final PageCursor after = after(cursor);
+        final int pageSize = pageSize(limit);
+        QuestionSummary question = this.answerDao.getQuestionSummaryByUuid(questionId);
+        if (question == null) {
+            throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
         }
+        List<AnswerSummary> answers = this.answerDao.getAnswers(question.getId(), after, pageSize + 1);
+        if (answers.size() <= pageSize) {
+            return new QuestionAnswersPage(question, Collections.unmodifiableList(answers), null, entityTag(question, answers, null));
+        }
+        AnswerSummary last = answers.get(pageSize - 1);
+        List<AnswerSummary> page = Collections.unmodifiableList(new ArrayList<>(answers.subList(0, pageSize)));
+        String nextCursor = new PageCursor(last.getDate(), last.getId()).encode();
+        return new QuestionAnswersPage(question, page, nextCursor, entityTag(question, page, nextCursor));
+    }
+
+    /**
+     * The method implements the business logic for exportQuestions endpoint. Every question is passed to the
+     * consumer as it is read.
+     */
+    @Transactional(readOnly = true)
+    public void exportQuestions(Consumer<QuestionSummary> consumer) {
+        this.questionDao.forEachQuestion(consumer);
     }
 
     /**
@@ -66,23 +111,17 @@ public class QuestionBusinessService {
     @Transactional(
             propagation = Propagation.REQUIRED
     )
-    public QuestionEntity editQuestionContent(QuestionEntity questionEntity, String questionId, String authorization) throws AuthorizationFailedException, InvalidQuestionException {
-        UserAuthEntity userAuthEntity = this.userDao.getUserAuthByAccesstoken(authorization);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", "User has signed out. Sign in first to edit the question");
+    public QuestionEntity editQuestionContent(QuestionEntity questionEntity, String questionId, AuthenticatedUser user) throws AuthorizationFailedException, InvalidQuestionException {
+        QuestionEntity questionEntity1 = this.questionDao.getQuestionByUuid(questionId);
+        if (questionEntity1 == null) {
+            throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
+        } else if (user.getId().equals(questionEntity1.getUser().getId())) {
+            questionEntity1.setContent(questionEntity.getContent());
+            questionEntity1.setDate(ZonedDateTime.now());
+            this.questionFeedCache.invalidate();
+            return this.questionDao.editQuestion(questionEntity1);
         } else {
-            QuestionEntity questionEntity1 = this.questionDao.getQuestionByUuid(questionId);
-            if (questionEntity1 == null) {
-                throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
-            } else if (userAuthEntity.getUser() == questionEntity1.getUser()) {
-                questionEntity1.setContent(questionEntity.getContent());
-                questionEntity1.setDate(ZonedDateTime.now());
-                return this.questionDao.editQuestion(questionEntity1);
-            } else {
-                throw new AuthorizationFailedException("ATHR-003", "Only the question owner can edit the question");
-            }
+            throw new AuthorizationFailedException("ATHR-003", "Only the question owner can edit the question");
         }
     }
 
@@ -92,41 +131,69 @@ public class QuestionBusinessService {
     @Transactional(
             propagation = Propagation.REQUIRED
     )
-    public QuestionEntity deleteQuestion(String questionId, String authorization) throws AuthorizationFailedException, InvalidQuestionException {
-        UserAuthEntity userAuthEntity = this.userDao.getUserAuthByAccesstoken(authorization);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", "User has signed out. Sign in first to delete a question");
+    public QuestionEntity deleteQuestion(String questionId, AuthenticatedUser user) throws AuthorizationFailedException, InvalidQuestionException {
+        QuestionEntity questionEntity = this.questionDao.getQuestionByUuid(questionId);
+        if (questionEntity == null) {
+            throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
+        } else if (!user.getId().equals(questionEntity.getUser().getId()) && !user.isAdmin()) {
+            throw new AuthorizationFailedException("ATHR-003", "Only the question owner or admin can delete the question");
         } else {
-            QuestionEntity questionEntity = this.questionDao.getQuestionByUuid(questionId);
-            if (questionEntity == null) {
-                throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
-            } else if (userAuthEntity.getUser() != questionEntity.getUser() && !userAuthEntity.getUser().getRole().equals("admin")) {
-                throw new AuthorizationFailedException("ATHR-003", "Only the question owner or admin can delete the question");
-            } else {
-                return this.questionDao.deleteQuestion(questionEntity);
-            }
+            this.questionFeedCache.invalidate();
+            return this.questionDao.deleteQuestion(questionEntity);
         }
     }
 
+    /**
+     * Returns the entity tag of the questions of a user from one aggregate query, so that an unchanged listing can be
+     * answered with 304 without reading the questions.
+     *
+     * @return the entity tag, null if there is no such user.
+     */
+    @Transactional(readOnly = true)
+    public String getQuestionsByUserEntityTag(String userId) {
+        Integer id = this.questionDao.getUserIdByUuid(userId);
+        if (id == null) {
+            return null;
+        }
+        Object[] version = this.questionDao.getQuestionsByUserVersion(id);
+        return EntityTag.of(id, version[0], version[1], version[2]);
+    }
+
     /**
      * The method implements the business logic for getAllQuestionsByUser endpoint.
      */
-    public TypedQuery<QuestionEntity> getQuestionsByUser(String userId, String authorization) throws AuthorizationFailedException, UserNotFoundException {
-        UserAuthEntity userAuthEntity = this.userDao.getUserAuthByAccesstoken(authorization);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", "User is signed out. Sign in first to get all questions posted by a specific user");
+    @Transactional(readOnly = true)
+    public List<QuestionSummary> getQuestionsByUser(String userId) throws UserNotFoundException {
+        Integer id = this.questionDao.getUserIdByUuid(userId);
+        if (id == null) {
+            throw new UserNotFoundException("USR-001", "User with entered uuid whose question details are to be seen does not exist");
         } else {
-            UserEntity userEntity = this.questionDao.getUserByUuid(userId);
-            if (userEntity == null) {
-                throw new UserNotFoundException("USR-001", "User with entered uuid whose question details are to be seen does not exist");
-            } else {
-                return this.questionDao.getQuestionsByUser(userEntity);
-            }
+            return this.questionDao.getQuestionsByUser(id);
+        }
+    }
+
+    private static PageCursor after(String cursor) throws InvalidCursorException {
+        return cursor == null || cursor.isEmpty() ? null : PageCursor.decode(cursor);
+    }
+
+    private int pageSize(Integer limit) {
+        return limit == null ? defaultPageSize : Math.max(1, Math.min(maxPageSize, limit));
+    }
+
+    /**
+     * Editing a question or an answer also updates its date, so the ids and dates identify the content.
+     */
+    private static String entityTag(QuestionSummary question, List<AnswerSummary> answers, String nextCursor) {
+        Object[] parts = new Object[2 * answers.size() + 3];
+        int i = 0;
+        parts[i++] = question.getId();
+        parts[i++] = question.getDate();
+        for (AnswerSummary answer : answers) {
+            parts[i++] = answer.getId();
+            parts[i++] = answer.getDate();
         }
+        parts[i] = nextCursor;
+        return EntityTag.of(parts);
     }
 }
 
@@ -0,0 +1,287 @@
+package com.upgrad.stackoverflow.service.business;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.upgrad.stackoverflow.service.common.EntityTag;
+import com.upgrad.stackoverflow.service.common.PageCursor;
+import com.upgrad.stackoverflow.service.common.SingleFlight;
+import com.upgrad.stackoverflow.service.dao.QuestionDao;
+import com.upgrad.stackoverflow.service.projection.QuestionPage;
+import com.upgrad.stackoverflow.service.projection.QuestionSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * QuestionFeedCache keeps the pages of GET /question/all in memory as immutable QuestionPage objects, keyed by
+ * cursor and page size, so that the most called endpoint rarely reaches the database.
+ *
+ * The feed only changes when a question is created, edited or deleted, or a user is deleted with their questions.
+ * Those write paths call invalidate, which moves the feed to a new generation once their transaction commits.
+ * A page of an older generation is reloaded on the caller's thread like a miss, so the writer and every reader after
+ * the commit see the write; concurrent callers for the same page wait for that one load. Pages older than
+ * refresh-after may only be missing writes made on other instances: they are still served while a single background
+ * reload per page replaces them.
+ * Pages which have not been reloaded within expire-after are dropped, which bounds how stale a rarely read page or a
+ * page changed by another instance can get. Hit, miss and eviction counters are published under the
+ * "questionFeedCache" cache name.
+ */
+@Component
+public class QuestionFeedCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QuestionFeedCache.class);
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    /**
+     * Runs the background reloads of stale pages.
+     */
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor taskExecutor;
+
+    private final boolean enabled;
+
+    private final long refreshAfterNanos;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final Cache<Key, Entry> cache;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Counter staleHits;
+
+    /**
+     * Concurrent loads of the same page in the same generation share one read, most of all while the cache is
+     * disabled. A load never joins a read which started before the last write committed.
+     */
+    private final SingleFlight<PageLoad, QuestionPage, RuntimeException> pageLoads;
+
+    public QuestionFeedCache(@Value("${stackoverflow.question.feed-cache.enabled:true}") final boolean enabled,
+                             @Value("${stackoverflow.question.feed-cache.maximum-size:1000}") final long maximumSize,
+                             @Value("${stackoverflow.question.feed-cache.refresh-after:30s}") final Duration refreshAfter,
+                             @Value("${stackoverflow.question.feed-cache.expire-after:10m}") final Duration expireAfter,
+                             final PlatformTransactionManager transactionManager,
+                             final MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.refreshAfterNanos = refreshAfter.toNanos();
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfter)
+                .recordStats()
+                .build();
+        this.staleHits = meterRegistry.counter("stackoverflow.question.feed.stale");
+        this.pageLoads = new SingleFlight<>("questionFeed", RuntimeException.class, meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "questionFeedCache");
+    }
+
+    /**
+     * @param after    position after which questions are returned, null for the first page.
+     * @param pageSize maximum number of questions in the page.
+     * @return the page, including every write committed on this instance, possibly stale by refresh-after for writes
+     * made on other instances.
+     */
+    public QuestionPage get(final PageCursor after, final int pageSize) {
+        final Key key = new Key(after, pageSize);
+        if (!enabled) {
+            return loadPage(key, generation.get());
+        }
+        Entry entry = cache.get(key, this::loadEntry);
+        if (entry.generation != generation.get()) {
+            entry = cache.asMap().merge(key, loadEntry(key), (current, loaded) -> loaded.isNewerThan(current) ? loaded : current);
+        } else if (System.nanoTime() - entry.loadedAt > refreshAfterNanos) {
+            staleHits.increment();
+            revalidate(key, entry);
+        }
+        return entry.page;
+    }
+
+    /**
+     * Marks every cached page as stale once the surrounding transaction commits, or at once outside a transaction.
+     * Moving to the next generation before the commit would let a concurrent reload stamp the data as it was before
+     * the write with the new generation.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    generation.incrementAndGet();
+                }
+            });
+        } else {
+            generation.incrementAndGet();
+        }
+    }
+
+    /**
+     * Reloads the page in the background unless a reload of it is already running. The reloaded page only replaces
+     * the cached one if it is not older.
+     */
+    private void revalidate(final Key key, final Entry stale) {
+        if (!stale.revalidating.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    final Entry fresh = loadEntry(key);
+                    cache.asMap().merge(key, fresh, (current, loaded) -> loaded.isNewerThan(current) ? loaded : current);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Reloading a page of the question feed failed, the stale page is served until the next attempt", e);
+                } finally {
+                    stale.revalidating.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            stale.revalidating.set(false);
+        }
+    }
+
+    private Entry loadEntry(final Key key) {
+        // read before the query, so that a write committing during the load leaves the page stale
+        final long loadedGeneration = generation.get();
+        final long loadedAt = System.nanoTime();
+        return new Entry(loadPage(key, loadedGeneration), loadedGeneration, loadedAt);
+    }
+
+    private QuestionPage loadPage(final Key key, final long loadedGeneration) {
+        return pageLoads.execute(new PageLoad(key, loadedGeneration),
+                () -> readOnlyTransactionTemplate.execute(status -> load(key.after, key.pageSize)));
+    }
+
+    /**
+     * One question more than the page is read, so that the last page is known without a further request. The entity
+     * tag is computed once here, so a conditional request for a cached page touches neither the database nor JSON.
+     */
+    private QuestionPage load(final PageCursor after, final int pageSize) {
+        final List<QuestionSummary> questions = questionDao.getQuestions(after, pageSize + 1);
+        if (questions.size() <= pageSize) {
+            return new QuestionPage(Collections.unmodifiableList(questions), null, entityTag(questions, null));
+        }
+        final QuestionSummary last = questions.get(pageSize - 1);
+        final List<QuestionSummary> page = Collections.unmodifiableList(new ArrayList<>(questions.subList(0, pageSize)));
+        final String nextCursor = new PageCursor(last.getDate(), last.getId()).encode();
+        return new QuestionPage(page, nextCursor, entityTag(page, nextCursor));
+    }
+
+    /**
+     * Editing a question also updates its date, so the id and date of each question identify its content.
+     */
+    private static String entityTag(final List<QuestionSummary> questions, final String nextCursor) {
+        final Object[] parts = new Object[2 * questions.size() + 1];
+        int i = 0;
+        for (final QuestionSummary question : questions) {
+            parts[i++] = question.getId();
+            parts[i++] = question.getDate();
+        }
+        parts[i] = nextCursor;
+        return EntityTag.of(parts);
+    }
+
+    private static final class Key {
+
+        private final PageCursor after;
+
+        private final String cursor;
+
+        private final int pageSize;
+
+        Key(final PageCursor after, final int pageSize) {
+            this.after = after;
+            this.cursor = after == null ? null : after.encode();
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return pageSize == key.pageSize && Objects.equals(cursor, key.cursor);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(cursor) + pageSize;
+        }
+    }
+
+    private static final class PageLoad {
+
+        private final Key key;
+
+        private final long generation;
+
+        PageLoad(final Key key, final long generation) {
+            this.key = key;
+            this.generation = generation;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PageLoad)) {
+                return false;
+            }
+            final PageLoad pageLoad = (PageLoad) o;
+            return generation == pageLoad.generation && key.equals(pageLoad.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + Long.hashCode(generation);
+        }
+    }
+
+    private static final class Entry {
+
+        private final QuestionPage page;
+
+        private final long generation;
+
+        private final long loadedAt;
+
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+
+        Entry(final QuestionPage page, final long generation, final long loadedAt) {
+            this.page = page;
+            this.generation = generation;
+            this.loadedAt = loadedAt;
+        }
+
+        boolean isNewerThan(final Entry other) {
+            return generation > other.generation || (generation == other.generation && loadedAt - other.loadedAt >= 0);
+        }
+    }
+}
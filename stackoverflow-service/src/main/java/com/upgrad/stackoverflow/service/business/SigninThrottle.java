@@ -0,0 +1,74 @@
+package com.upgrad.stackoverflow.service.business;
+
+import com.upgrad.stackoverflow.service.common.TokenBucketLimiter;
+import com.upgrad.stackoverflow.service.exception.SigninThrottledException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SigninThrottle limits signin attempts per client address and per username before any password is verified, so
+ * that credential stuffing against one account or from one client cannot keep the password hashing pool busy.
+ *
+ * Each attempt takes a permit from the bucket of its client and from the bucket of its username; an attempt without
+ * a permit is rejected without touching the database. Rejections are counted per bucket kind.
+ */
+@Component
+public class SigninThrottle {
+
+    private final boolean enabled;
+
+    private final TokenBucketLimiter clientLimiter;
+
+    private final TokenBucketLimiter usernameLimiter;
+
+    private final Counter clientRejections;
+
+    private final Counter usernameRejections;
+
+    public SigninThrottle(@Value("${stackoverflow.auth.signin-throttle.enabled:true}") final boolean enabled,
+                          @Value("${stackoverflow.auth.signin-throttle.per-client.permits:30}") final int clientPermits,
+                          @Value("${stackoverflow.auth.signin-throttle.per-client.period:1m}") final Duration clientPeriod,
+                          @Value("${stackoverflow.auth.signin-throttle.per-username.permits:5}") final int usernamePermits,
+                          @Value("${stackoverflow.auth.signin-throttle.per-username.period:1m}") final Duration usernamePeriod,
+                          @Value("${stackoverflow.auth.signin-throttle.maximum-keys:100000}") final long maximumKeys,
+                          final MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.clientLimiter = new TokenBucketLimiter(clientPermits, clientPeriod, maximumKeys);
+        this.usernameLimiter = new TokenBucketLimiter(usernamePermits, usernamePeriod, maximumKeys);
+        this.clientRejections = meterRegistry.counter("stackoverflow.auth.signin.throttled", "key", "client");
+        this.usernameRejections = meterRegistry.counter("stackoverflow.auth.signin.throttled", "key", "username");
+    }
+
+    /**
+     * Takes a signin attempt from the buckets of the client and the username.
+     *
+     * @param username      username the client signs in with.
+     * @param clientAddress address of the client.
+     * @throws SigninThrottledException ATH-003 if the client or the username has no attempts left.
+     */
+    public void acquire(final String username, final String clientAddress) throws SigninThrottledException {
+        if (!enabled) {
+            return;
+        }
+        final long clientWait = clientLimiter.tryAcquire(clientAddress);
+        if (clientWait > 0) {
+            clientRejections.increment();
+            throw throttled(clientWait);
+        }
+        final long usernameWait = usernameLimiter.tryAcquire(username);
+        if (usernameWait > 0) {
+            usernameRejections.increment();
+            throw throttled(usernameWait);
+        }
+    }
+
+    private static SigninThrottledException throttled(final long waitNanos) {
+        return new SigninThrottledException("ATH-003", "Too many signin attempts, please retry later",
+                Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+    }
+}
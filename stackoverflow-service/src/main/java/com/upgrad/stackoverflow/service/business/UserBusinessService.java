@@ -1,18 +1,33 @@
 package com.upgrad.stackoverflow.service.business;
 
-import com.upgrad.stackoverflow.service.common.JwtTokenProvider;
+import com.upgrad.stackoverflow.service.common.AuthenticatedUser;
+import com.upgrad.stackoverflow.service.common.JwtTokenIssuer;
+import com.upgrad.stackoverflow.service.common.TokenDigest;
+import com.upgrad.stackoverflow.service.dao.RevokedTokenFilter;
+import com.upgrad.stackoverflow.service.dao.SignupIdentityFilter;
+import com.upgrad.stackoverflow.service.dao.UserAuthCache;
+import com.upgrad.stackoverflow.service.dao.UserAuthWriter;
 import com.upgrad.stackoverflow.service.dao.UserDao;
 import com.upgrad.stackoverflow.service.entity.UserAuthEntity;
 import com.upgrad.stackoverflow.service.entity.UserEntity;
 import com.upgrad.stackoverflow.service.exception.AuthenticationFailedException;
 import com.upgrad.stackoverflow.service.exception.SignOutRestrictedException;
 import com.upgrad.stackoverflow.service.exception.SignUpRestrictedException;
+import com.upgrad.stackoverflow.service.projection.UserSessionSummary;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @Service
 public class UserBusinessService {
@@ -20,69 +35,195 @@ public class UserBusinessService {
     @Autowired
     private UserDao userDao;
 
+    @Autowired
+    private UserAuthCache userAuthCache;
+
+    @Autowired
+    private RevokedTokenFilter revokedTokenFilter;
+
+    @Autowired
+    private SignupIdentityFilter signupIdentityFilter;
+
     @Autowired
     private PasswordCryptographyProvider passwordCryptographyProvider;
 
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Runs the database work of signup and signin once the password hash is ready, so that the hashing pool
+     * is never blocked on the database.
+     */
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor taskExecutor;
+
+    @Autowired
+    private JwtTokenIssuer jwtTokenIssuer;
+
+    @Autowired
+    private UserAuthWriter userAuthWriter;
+
+    @Autowired
+    private AuthenticationBusinessService authenticationBusinessService;
+
     /**
      * The method implements the business logic for signup endpoint.
+     * Duplicates are turned away before any password is hashed: the signup identity filter clears new usernames and
+     * emails without a query, the others are checked with one query against USERS. Only then is the password hashed
+     * on the password hashing pool and the user stored. The unique constraints of USERS decide signups which race.
+     *
+     * @return future of the created user, completed exceptionally with a SignUpRestrictedException if a user with the
+     * same username or email was created in the meantime or a ServiceBusyException if too many passwords are being hashed.
+     * @throws SignUpRestrictedException SGR-001 if the username is taken, SGR-002 if the email is taken.
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public UserEntity signup(UserEntity userEntity) throws SignUpRestrictedException {
-        String[] encryptedText = passwordCryptographyProvider.encrypt(userEntity.getPassword());
-        userEntity.setSalt(encryptedText[0]);
-        userEntity.setPassword(encryptedText[1]);
-        if(userDao.getUserByUsername(userEntity.getUserName())!=null ||userDao.getUserByEmail(userEntity.getEmail())!=null){
-            throw new SignUpRestrictedException("409", "User Already Exist");
+    public CompletableFuture<UserEntity> signup(UserEntity userEntity) throws SignUpRestrictedException {
+        if(signupIdentityFilter.mightBeTaken(userEntity.getUserName(), userEntity.getEmail())){
+            final List<Object[]> conflicts = userDao.getUserIdentityConflicts(userEntity.getUserName(), userEntity.getEmail());
+            for(Object[] identity : conflicts){
+                if(userEntity.getUserName().equals(identity[0])){
+                    throw usernameTaken();
+                }
+            }
+            if(!conflicts.isEmpty()){
+                throw emailTaken();
+            }
         }
-        return userDao.createUser(userEntity);
+        return passwordHashingExecutor.encrypt(userEntity.getPassword()).thenApplyAsync(encryptedText -> {
+            userEntity.setSalt(encryptedText[0]);
+            userEntity.setPassword(encryptedText[1]);
+            final UserEntity createdUserEntity;
+            try {
+                createdUserEntity = transactionTemplate.execute(status -> userDao.createUser(userEntity));
+            } catch (DataIntegrityViolationException e) {
+                throw new CompletionException(isEmailConstraint(e) ? emailTaken() : usernameTaken());
+            }
+            signupIdentityFilter.add(createdUserEntity.getUserName(), createdUserEntity.getEmail());
+            return createdUserEntity;
+        }, taskExecutor);
+    }
+
+    private static SignUpRestrictedException usernameTaken() {
+        return new SignUpRestrictedException("SGR-001", "Try any other Username, this Username has already been taken");
+    }
+
+    private static SignUpRestrictedException emailTaken() {
+        return new SignUpRestrictedException("SGR-002", "This user has already been registered, try with any other emailId");
+    }
+
+    private static boolean isEmailConstraint(final DataIntegrityViolationException e) {
+        final Throwable cause = e.getCause();
+        return cause instanceof ConstraintViolationException
+                && ((ConstraintViolationException) cause).getConstraintName() != null
+                && ((ConstraintViolationException) cause).getConstraintName().toLowerCase().contains("email");
     }
 
     /**
      * The method implements the business logic for signin endpoint.
+     * The password is hashed on the password hashing pool and the session is stored once the hash is ready.
+     * A password stored with a lower hashing cost than the current one is hashed again and updated in the same
+     * transaction as the session; if the hashing pool is busy the upgrade is left for a later signin.
+     *
+     * @return future of the new session, completed exceptionally with an AuthenticationFailedException if the
+     * password does not match or a ServiceBusyException if too many passwords are being hashed.
+     * @throws AuthenticationFailedException if no user has the given username.
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public UserAuthEntity authenticate(String username, String password) throws AuthenticationFailedException {
+    public CompletableFuture<UserAuthEntity> authenticate(String username, String password) throws AuthenticationFailedException {
         UserEntity userEntity = userDao.getUserByUsername(username);
         if(userEntity==null){
             throw new AuthenticationFailedException("401","User with email not found");
         }
-        final String encryptedPassword = passwordCryptographyProvider.encrypt(password, userEntity.getSalt());
-        if(encryptedPassword.equals(userEntity.getPassword())){
-            JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(encryptedPassword);
+        return passwordHashingExecutor.matches(password, userEntity.getSalt(), userEntity.getPassword()).thenCompose(matches -> {
+            if(!matches){
+                throw new CompletionException(new AuthenticationFailedException("ATH-002", "Password Failed"));
+            }
+            if(!passwordCryptographyProvider.needsRehash(userEntity.getPassword())){
+                return CompletableFuture.<String[]>completedFuture(null);
+            }
+            return passwordHashingExecutor.encrypt(password).exceptionally(busy -> null);
+        }).thenApplyAsync(rehashed -> transactionTemplate.execute(status -> {
+            if(rehashed!=null){
+                userEntity.setSalt(rehashed[0]);
+                userEntity.setPassword(rehashed[1]);
+                userDao.updateUser(userEntity);
+            }
             UserAuthEntity userAuthToken = new UserAuthEntity();
             userAuthToken.setUser(userEntity);
             final ZonedDateTime now = ZonedDateTime.now();
             final ZonedDateTime expiresAt = now.plusHours(8);
-            userAuthToken.setAccessToken(jwtTokenProvider.generateToken(userEntity.getUuid(), now, expiresAt));
+            userAuthToken.setAccessToken(jwtTokenIssuer.issueToken(userEntity, userEntity.getPassword(), now, expiresAt));
+            userAuthToken.setAccessTokenDigest(TokenDigest.of(userAuthToken.getAccessToken()));
             userAuthToken.setLoginAt(now);
             userAuthToken.setExpiresAt(expiresAt);
             userAuthToken.setUuid(userEntity.getUuid());
 
-            userDao.createUserAuth(userAuthToken);
-//            userDao.updateUser(userEntity);
+            if (!userAuthWriter.enqueue(userAuthToken)) {
+                userDao.createUserAuth(userAuthToken);
+            }
 
             return userAuthToken;
-        }
-        else{
-            throw new AuthenticationFailedException("ATH-002", "Password Failed");
-        }
+        }), taskExecutor);
     }
 
     /**
      * The method implements the business logic for signout endpoint.
+     * The session is signed out with one conditional update; the session is only read again to tell why a signout failed.
+     *
+     * @return the uuid of the user who is signed out.
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public UserAuthEntity signout(String authorization) throws SignOutRestrictedException {
+    public String signout(String authorization) throws SignOutRestrictedException {
         if(authorization==null)
             throw new SignOutRestrictedException("400", "Access Token is null");
-        UserAuthEntity userAuthEntity = userDao.getUserAuthByAccesstoken(authorization);
-        if(userAuthEntity==null)
-            throw new SignOutRestrictedException("400", "Invalid Access Token");
-        if(userAuthEntity.getLogoutAt()!=null)
-            throw new SignOutRestrictedException("404","Already Logged Out");
+        if(userAuthWriter.isPending(authorization))
+            userAuthWriter.flush();
+
+        final ZonedDateTime now = ZonedDateTime.now();
+        String userUuid = userDao.signOutUserAuth(authorization, now);
+        if(userUuid==null){
+            if(userDao.getUserAuthByAccesstoken(authorization)!=null)
+                throw new SignOutRestrictedException("404","Already Logged Out");
+            final UserAuthEntity restoredUserAuthEntity = authenticationBusinessService.restoreUserAuth(authorization);
+            if(restoredUserAuthEntity==null)
+                throw new SignOutRestrictedException("400", "Invalid Access Token");
+            restoredUserAuthEntity.setLogoutAt(now);
+            userDao.createUserAuth(restoredUserAuthEntity);
+            userUuid = restoredUserAuthEntity.getUuid();
+        }
+        userAuthCache.invalidate(authorization);
+        revokedTokenFilter.revoke(authorization);
+        return userUuid;
+    }
+
+    /**
+     * Returns a page of the active sessions of the signed in user, newest first.
+     *
+     * @param before id of the last session of the previous page, null for the first page.
+     * @param limit  maximum number of sessions in the page.
+     */
+    @Transactional(readOnly = true)
+    public List<UserSessionSummary> getActiveSessions(AuthenticatedUser user, Integer before, int limit) {
+        return userDao.getActiveUserSessions(userDao.getUserReference(user.getId()), ZonedDateTime.now(), before, limit);
+    }
 
+    /**
+     * Signs the user out of every active session with one set-based update of USER_AUTH. The sessions are dropped
+     * from the session cache and, for stateless tokens, added to the revoked token filter.
+     *
+     * @return the number of sessions signed out.
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public int signoutAllSessions(AuthenticatedUser user) {
+        // rows still queued by write-behind would otherwise escape the update
+        userAuthWriter.flush();
+        final UserEntity userEntity = userDao.getUserReference(user.getId());
         final ZonedDateTime now = ZonedDateTime.now();
-        userAuthEntity.setLogoutAt(now);
-        return userDao.updateUserAuth(userAuthEntity);
+        final List<byte[]> signedOut = userDao.signOutUserAuths(userEntity, now);
+        revokedTokenFilter.revokeDigests(signedOut);
+        userAuthCache.invalidateUser(user.getId());
+        return signedOut.size();
     }
 }
@@ -0,0 +1,43 @@
+package com.upgrad.stackoverflow.service.common;
+
+/**
+ * AuthenticatedUser is the immutable principal of a request, resolved once from the access token in the authorization
+ * header and handed to the controllers and business services in place of the raw header.
+ */
+public final class AuthenticatedUser {
+
+    private static final String ADMIN_ROLE = "admin";
+
+    private final Integer id;
+
+    private final String uuid;
+
+    private final String role;
+
+    public AuthenticatedUser(final Integer id, final String uuid, final String role) {
+        this.id = id;
+        this.uuid = uuid;
+        this.role = role;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public boolean isAdmin() {
+        return ADMIN_ROLE.equals(role);
+    }
+
+    @Override
+    public String toString() {
+        return "AuthenticatedUser{id=" + id + ", uuid='" + uuid + "', role='" + role + "'}";
+    }
+}
@@ -0,0 +1,145 @@
+package com.upgrad.stackoverflow.service.common;
+
+import com.upgrad.stackoverflow.service.exception.AuthenticationFailedException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * BasicCredentials is the username and password of a Basic authorization header (RFC 7617).
+ *
+ * parse decodes the base64 part straight from the header into a single byte array, splits it at the first colon
+ * and decodes both halves as UTF-8, so a password may contain colons and a username may contain any character but
+ * a colon. Any header that is not well formed is rejected with an AuthenticationFailedException.
+ */
+public final class BasicCredentials {
+
+    private static final String SCHEME = "Basic";
+
+    private static final byte[] BASE64_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(BASE64_VALUES, (byte) -1);
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    /**
+     * Decoders are not thread-safe, each thread keeps its own. Malformed UTF-8 is reported instead of replaced, so
+     * that two different byte sequences can never turn into the same password.
+     */
+    private static final ThreadLocal<CharsetDecoder> UTF_8_DECODER = ThreadLocal.withInitial(() ->
+            StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT));
+
+    private final String username;
+
+    private final String password;
+
+    private BasicCredentials(final String username, final String password) {
+        this.username = username;
+        this.password = password;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * @param authorization value of the authorization header.
+     * @return the credentials in the header.
+     * @throws AuthenticationFailedException ATH-004 if the header is not a well formed Basic authorization header.
+     */
+    public static BasicCredentials parse(final String authorization) throws AuthenticationFailedException {
+        if (authorization == null || !authorization.regionMatches(true, 0, SCHEME, 0, SCHEME.length())) {
+            throw malformed();
+        }
+        int start = SCHEME.length();
+        int end = authorization.length();
+        if (start == end || authorization.charAt(start) != ' ') {
+            throw malformed();
+        }
+        while (start < end && authorization.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && authorization.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (end > start && (end - start) % 4 == 0 && authorization.charAt(end - 1) == '=') {
+            end--;
+            if (authorization.charAt(end - 1) == '=') {
+                end--;
+            }
+        }
+
+        final byte[] decoded = decodeBase64(authorization, start, end);
+        int colon = -1;
+        for (int i = 0; i < decoded.length; i++) {
+            if (decoded[i] == ':') {
+                colon = i;
+                break;
+            }
+        }
+        if (colon <= 0) {
+            throw malformed();
+        }
+        try {
+            final CharsetDecoder decoder = UTF_8_DECODER.get();
+            final String username = decoder.decode(ByteBuffer.wrap(decoded, 0, colon)).toString();
+            final String password = decoder.decode(ByteBuffer.wrap(decoded, colon + 1, decoded.length - colon - 1)).toString();
+            return new BasicCredentials(username, password);
+        } catch (CharacterCodingException e) {
+            throw malformed();
+        } finally {
+            Arrays.fill(decoded, (byte) 0);
+        }
+    }
+
+    /**
+     * Decodes base64 without padding from chars [start, end) of the header.
+     */
+    private static byte[] decodeBase64(final String value, final int start, final int end) throws AuthenticationFailedException {
+        final int length = end - start;
+        if (length == 0 || length % 4 == 1) {
+            throw malformed();
+        }
+        final byte[] decoded = new byte[length / 4 * 3 + Math.max(0, length % 4 - 1)];
+        int bits = 0;
+        int bitCount = 0;
+        int position = 0;
+        for (int i = start; i < end; i++) {
+            final char c = value.charAt(i);
+            final int sextet = c < 128 ? BASE64_VALUES[c] : -1;
+            if (sextet < 0) {
+                throw malformed();
+            }
+            bits = (bits << 6) | sextet;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                decoded[position++] = (byte) (bits >>> bitCount);
+                bits &= (1 << bitCount) - 1;
+            }
+        }
+        if (bits != 0) {
+            // leftover bits of the last char must be zero in canonical base64
+            throw malformed();
+        }
+        return decoded;
+    }
+
+    private static AuthenticationFailedException malformed() {
+        return new AuthenticationFailedException("ATH-004", "Authorization header is not valid Basic authentication");
+    }
+}
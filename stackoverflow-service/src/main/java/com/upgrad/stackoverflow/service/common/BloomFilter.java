@@ -0,0 +1,87 @@
+package com.upgrad.stackoverflow.service.common;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * BloomFilter is a fixed-size, thread-safe set membership filter. A negative answer from mightContain is exact,
+ * a positive answer is wrong with roughly the configured false positive probability as long as no more than
+ * the expected number of keys have been added. Memory use is fixed at construction time and never grows.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    private final int expectedInsertions;
+
+    private final AtomicInteger insertions = new AtomicInteger();
+
+    /**
+     * @param expectedInsertions        number of keys the filter is sized for.
+     * @param falsePositiveProbability  target false positive probability at the expected number of keys.
+     */
+    public BloomFilter(final int expectedInsertions, final double falsePositiveProbability) {
+        final int n = Math.max(1, expectedInsertions);
+        final long m = Math.max(64, (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2))));
+        this.bits = new AtomicLongArray((int) ((m + 63) >>> 6));
+        this.bitCount = (long) bits.length() << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.expectedInsertions = n;
+    }
+
+    public void put(final byte[] key) {
+        final long hash1 = hash(key, 0x9E3779B97F4A7C15L);
+        final long hash2 = hash(key, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            final int index = (int) (bit >>> 6);
+            final long mask = 1L << bit;
+            long word;
+            while (((word = bits.get(index)) & mask) == 0 && !bits.compareAndSet(index, word, word | mask)) {
+                // another writer changed the word, retry with the new value
+            }
+        }
+        insertions.incrementAndGet();
+    }
+
+    public boolean mightContain(final byte[] key) {
+        final long hash1 = hash(key, 0x9E3779B97F4A7C15L);
+        final long hash2 = hash(key, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true once more keys have been added than the filter was sized for.
+     */
+    public boolean isSaturated() {
+        return insertions.get() > expectedInsertions;
+    }
+
+    public int getInsertions() {
+        return insertions.get();
+    }
+
+    private static long hash(final byte[] key, final long seed) {
+        long hash = seed;
+        for (byte b : key) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        // final avalanche step of MurmurHash3, spreads the FNV-1a result over all 64 bits
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,46 @@
+package com.upgrad.stackoverflow.service.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * EntityTag builds the strong, quoted HTTP entity tag of a resource from the values that change whenever the
+ * resource does, e.g. its row count, highest id and latest date. The values are hashed, so the tag reveals none of
+ * them, and the same values give the same tag on every instance of the application.
+ */
+public final class EntityTag {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final int LENGTH = 16;
+
+    private EntityTag() {
+    }
+
+    /**
+     * @param parts values which identify the version of the resource, null is allowed.
+     * @return the quoted entity tag.
+     */
+    public static String of(final Object... parts) {
+        final MessageDigest digest = sha256();
+        for (final Object part : parts) {
+            // dates are compared as instants, so that the time zone of the instance does not change the tag
+            final Object value = part instanceof ZonedDateTime ? ((ZonedDateTime) part).toInstant() : part;
+            digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest.digest(), LENGTH)) + '"';
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e);
+        }
+    }
+}
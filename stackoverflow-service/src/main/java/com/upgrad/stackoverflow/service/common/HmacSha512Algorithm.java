@@ -0,0 +1,81 @@
+package com.upgrad.stackoverflow.service.common;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureGenerationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * HmacSha512Algorithm signs and verifies HS512 tokens exactly like Algorithm.HMAC512, but reuses one Mac instance
+ * per thread instead of looking up the JCA provider and allocating a new Mac for every token.
+ */
+final class HmacSha512Algorithm extends Algorithm {
+
+    private static final String MAC_ALGORITHM = "HmacSHA512";
+
+    private static final ThreadLocal<Mac> MAC = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(MAC_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e);
+        }
+    });
+
+    private final SecretKeySpec key;
+
+    HmacSha512Algorithm(final String secret) {
+        super("HS512", MAC_ALGORITHM);
+        if (secret == null) {
+            throw new IllegalArgumentException("The Secret cannot be null");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM);
+    }
+
+    @Override
+    public void verify(final DecodedJWT jwt) throws SignatureVerificationException {
+        try {
+            final byte[] signature = Base64.getUrlDecoder().decode(jwt.getSignature());
+            final byte[] expected = sign(jwt.getHeader().getBytes(StandardCharsets.UTF_8), jwt.getPayload().getBytes(StandardCharsets.UTF_8));
+            if (!MessageDigest.isEqual(expected, signature)) {
+                throw new SignatureVerificationException(this);
+            }
+        } catch (IllegalArgumentException | SignatureGenerationException e) {
+            throw new SignatureVerificationException(this, e);
+        }
+    }
+
+    @Override
+    public byte[] sign(final byte[] headerBytes, final byte[] payloadBytes) throws SignatureGenerationException {
+        final Mac mac = init();
+        mac.update(headerBytes);
+        mac.update((byte) '.');
+        mac.update(payloadBytes);
+        return mac.doFinal();
+    }
+
+    /**
+     * @deprecated kept because Algorithm still declares it, tokens are signed with sign(byte[], byte[]).
+     */
+    @Deprecated
+    @Override
+    public byte[] sign(final byte[] contentBytes) throws SignatureGenerationException {
+        return init().doFinal(contentBytes);
+    }
+
+    private Mac init() throws SignatureGenerationException {
+        final Mac mac = MAC.get();
+        try {
+            mac.init(key);
+        } catch (GeneralSecurityException e) {
+            throw new SignatureGenerationException(this, e);
+        }
+        return mac;
+    }
+}
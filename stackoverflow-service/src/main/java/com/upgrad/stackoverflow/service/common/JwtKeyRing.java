@@ -0,0 +1,75 @@
+package com.upgrad.stackoverflow.service.common;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JwtKeyRing holds the server-side keys used to sign and verify access tokens in stateless mode.
+ * Keys are configured as a comma separated list of "keyId:secret" pairs. New tokens are signed with the
+ * active key; tokens signed with any other key in the ring stay valid until they expire, which allows
+ * keys to be rotated by adding a new key, switching the active key id and dropping the old key later.
+ */
+@Component
+public class JwtKeyRing {
+
+    private final Map<String, JwtTokenProvider> providers;
+
+    private final String activeKeyId;
+
+    public JwtKeyRing(@Value("${stackoverflow.auth.jwt.signing-keys:}") final String signingKeys,
+                      @Value("${stackoverflow.auth.jwt.active-key-id:}") final String activeKeyId) {
+        final Map<String, JwtTokenProvider> providers = new LinkedHashMap<>();
+        for (String entry : signingKeys.split(",")) {
+            final int separator = entry.indexOf(':');
+            if (separator > 0) {
+                final String keyId = entry.substring(0, separator).trim();
+                providers.put(keyId, new JwtTokenProvider(keyId, entry.substring(separator + 1).trim()));
+            }
+        }
+        if (!activeKeyId.isEmpty() && !providers.containsKey(activeKeyId)) {
+            throw new IllegalStateException("Active JWT key id '" + activeKeyId + "' is not part of the signing keys");
+        }
+        this.providers = Collections.unmodifiableMap(providers);
+        this.activeKeyId = activeKeyId.isEmpty() ? null : activeKeyId;
+    }
+
+    public boolean hasActiveKey() {
+        return activeKeyId != null;
+    }
+
+    /**
+     * @return the provider used to sign new tokens.
+     */
+    public JwtTokenProvider getActiveProvider() {
+        if (activeKeyId == null) {
+            throw new IllegalStateException("No active JWT signing key is configured");
+        }
+        return providers.get(activeKeyId);
+    }
+
+    /**
+     * Looks up the provider for the key a token claims to be signed with. The token is only decoded here,
+     * callers must still verify it with the returned provider.
+     *
+     * @param token JWT access token.
+     * @return the provider of the token's key, or null if the token was not signed by a key of this ring.
+     */
+    public JwtTokenProvider getProvider(final String token) {
+        if (token == null || providers.isEmpty()) {
+            return null;
+        }
+        try {
+            final DecodedJWT decodedJWT = JWT.decode(token);
+            return decodedJWT.getKeyId() == null ? null : providers.get(decodedJWT.getKeyId());
+        } catch (JWTDecodeException e) {
+            return null;
+        }
+    }
+}
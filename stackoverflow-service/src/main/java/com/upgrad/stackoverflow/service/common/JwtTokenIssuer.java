@@ -0,0 +1,52 @@
+package com.upgrad.stackoverflow.service.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.upgrad.stackoverflow.service.entity.UserEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * JwtTokenIssuer issues the access token of a signin.
+ *
+ * In stateless mode tokens are signed with the active key of the key ring. Otherwise they are signed with the user's
+ * password hash as before; the provider for each hash is kept for a while, so that repeated signins of a user do not
+ * set up a new algorithm and verifier every time. Signing itself reuses one Mac per thread, see HmacSha512Algorithm.
+ */
+@Component
+public class JwtTokenIssuer {
+
+    private final JwtKeyRing jwtKeyRing;
+
+    private final boolean statelessEnabled;
+
+    private final Cache<String, JwtTokenProvider> providers;
+
+    public JwtTokenIssuer(final JwtKeyRing jwtKeyRing,
+                          @Value("${stackoverflow.auth.stateless.enabled:false}") final boolean statelessEnabled,
+                          @Value("${stackoverflow.auth.jwt.provider-cache.maximum-size:10000}") final long maximumSize,
+                          @Value("${stackoverflow.auth.jwt.provider-cache.expire-after-access:15m}") final Duration expireAfterAccess) {
+        this.jwtKeyRing = jwtKeyRing;
+        this.statelessEnabled = statelessEnabled;
+        this.providers = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+    }
+
+    /**
+     * @param userEntity        the user signing in.
+     * @param encryptedPassword password hash of the user, signs the token unless stateless mode is enabled.
+     * @return the signed access token.
+     */
+    public String issueToken(final UserEntity userEntity, final String encryptedPassword,
+                             final ZonedDateTime issuedAt, final ZonedDateTime expiresAt) {
+        if (statelessEnabled) {
+            return jwtKeyRing.getActiveProvider().generateToken(userEntity.getId(), userEntity.getUuid(), userEntity.getRole(), issuedAt, expiresAt);
+        }
+        return providers.get(encryptedPassword, JwtTokenProvider::new).generateToken(userEntity.getUuid(), issuedAt, expiresAt);
+    }
+}
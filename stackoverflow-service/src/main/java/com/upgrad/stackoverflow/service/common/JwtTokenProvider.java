@@ -1,38 +1,104 @@
 package com.upgrad.stackoverflow.service.common;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.upgrad.stackoverflow.service.common.GenericErrorCode;
 import com.upgrad.stackoverflow.service.common.UnexpectedException;
 
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoField;
 import java.util.Date;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 
 public class JwtTokenProvider {
     private static final String TOKEN_ISSUER = "https://stackoverflow.io";
 
+    public static final String USER_ID_CLAIM = "uid";
+
+    public static final String ROLE_CLAIM = "role";
+
     private final Algorithm algorithm;
 
+    private final String keyId;
+
+    private final JWTVerifier verifier;
+
     public JwtTokenProvider(final String secret) {
+        this(null, secret);
+    }
+
+    /**
+     * Creates a provider bound to a server-side signing key. Tokens carry the key id in their header so that
+     * they can still be verified after the active key has been rotated.
+     */
+    public JwtTokenProvider(final String keyId, final String secret) {
         try {
-            algorithm = Algorithm.HMAC512(secret);
+            algorithm = new HmacSha512Algorithm(secret);
         } catch (IllegalArgumentException e) {
             throw new UnexpectedException(GenericErrorCode.GEN_001);
         }
+        this.keyId = keyId;
+        this.verifier = JWT.require(algorithm).withIssuer(TOKEN_ISSUER).build();
+    }
+
+    public String getKeyId() {
+        return keyId;
     }
 
     public String generateToken(final String userUuid, final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
 
-        final Date issuedAt = new Date(issuedDateTime.getLong(ChronoField.INSTANT_SECONDS));
-        final Date expiresAt = new Date(expiresDateTime.getLong(ChronoField.INSTANT_SECONDS));
+        final Date issuedAt = Date.from(issuedDateTime.toInstant());
+        final Date expiresAt = Date.from(expiresDateTime.toInstant());
 
         return JWT.create().withIssuer(TOKEN_ISSUER) //
-                .withKeyId(UUID.randomUUID().toString())
+                .withKeyId(keyId != null ? keyId : randomId())
                 .withAudience(userUuid) //
                 .withIssuedAt(issuedAt).withExpiresAt(expiresAt).sign(algorithm);
     }
 
+    /**
+     * Generates a self-contained token which carries the user id and role, so that it can be authorized
+     * without reading the user from the database.
+     */
+    public String generateToken(final Integer userId, final String userUuid, final String role,
+                                final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
+
+        final Date issuedAt = Date.from(issuedDateTime.toInstant());
+        final Date expiresAt = Date.from(expiresDateTime.toInstant());
+
+        return JWT.create().withIssuer(TOKEN_ISSUER) //
+                .withKeyId(keyId != null ? keyId : randomId())
+                .withJWTId(randomId())
+                .withAudience(userUuid) //
+                .withClaim(USER_ID_CLAIM, userId)
+                .withClaim(ROLE_CLAIM, role)
+                .withIssuedAt(issuedAt).withExpiresAt(expiresAt).sign(algorithm);
+    }
+
+    /**
+     * Verifies the signature, issuer and expiry of the token.
+     *
+     * @param token JWT access token.
+     * @return the decoded token.
+     * @throws JWTVerificationException if the token is malformed, tampered with or expired.
+     */
+    public DecodedJWT verifyToken(final String token) throws JWTVerificationException {
+        return verifier.verify(token);
+    }
+
+    /**
+     * Random type 4 UUID used to make every token unique. Token ids are not secret, so they are taken from the
+     * per-thread ThreadLocalRandom instead of the shared SecureRandom behind UUID.randomUUID, which threads contend on.
+     */
+    private static String randomId() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final long mostSigBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        final long leastSigBits = (random.nextLong() & ~(0xC000L << 48)) | (0x8000L << 48);
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+
 }
@@ -0,0 +1,80 @@
+package com.upgrad.stackoverflow.service.common;
+
+import com.upgrad.stackoverflow.service.exception.InvalidCursorException;
+
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+
+/**
+ * PageCursor is the position of the last row of a page ordered by (date, id), which the next page starts after.
+ *
+ * Clients see it as an opaque url-safe string: the epoch second, nanosecond and id of the row packed into 16 bytes
+ * and base64 encoded. It carries no offset, so a page is found with an index range scan however deep it is.
+ */
+public final class PageCursor {
+
+    private static final int LENGTH = Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    private final ZonedDateTime date;
+
+    private final Integer id;
+
+    public PageCursor(final ZonedDateTime date, final Integer id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String encode() {
+        final Instant instant = date.toInstant();
+        final ByteBuffer buffer = ByteBuffer.allocate(LENGTH)
+                .putLong(instant.getEpochSecond())
+                .putInt(instant.getNano())
+                .putInt(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * @param cursor cursor returned by encode.
+     * @return the position in the cursor.
+     * @throws InvalidCursorException PAGE-001 if the cursor is not one returned by encode.
+     */
+    public static PageCursor decode(final String cursor) throws InvalidCursorException {
+        final byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+        if (bytes.length != LENGTH) {
+            throw invalid();
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        final long epochSecond = buffer.getLong();
+        final int nano = buffer.getInt();
+        final int id = buffer.getInt();
+        if (nano < 0 || nano > 999_999_999 || id <= 0) {
+            throw invalid();
+        }
+        try {
+            return new PageCursor(ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond, nano), ZoneId.systemDefault()), id);
+        } catch (DateTimeException e) {
+            throw invalid();
+        }
+    }
+
+    private static InvalidCursorException invalid() {
+        return new InvalidCursorException("PAGE-001", "Cursor is not valid, use the next_cursor of the previous page");
+    }
+}
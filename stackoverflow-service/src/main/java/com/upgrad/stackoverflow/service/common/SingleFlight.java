@@ -0,0 +1,105 @@
+package com.upgrad.stackoverflow.service.common;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * SingleFlight coalesces concurrent identical reads: while a call for a key is running, every other caller asking
+ * for the same key waits for it and gets its result, or its exception, instead of running the call again.
+ *
+ * Only calls which overlap are shared, a call that starts after the previous one for its key has finished runs
+ * again, so a result is never older than the caller's request. The shared result is handed to every waiting caller
+ * and must therefore be immutable. Calls are counted as "executed" or "coalesced" under
+ * stackoverflow.singleflight.calls, tagged with the name of the read, which gives the coalescing ratio.
+ *
+ * @param <K> key of the read.
+ * @param <V> result of the read.
+ * @param <E> checked exception the read may throw.
+ */
+public class SingleFlight<K, V, E extends Exception> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Class<E> exceptionType;
+
+    private final Counter executed;
+
+    private final Counter coalesced;
+
+    /**
+     * @param name          name of the read, used as the tag of its metrics.
+     * @param exceptionType checked exception the read may throw, rethrown as is to every caller.
+     */
+    public SingleFlight(final String name, final Class<E> exceptionType, final MeterRegistry meterRegistry) {
+        this.exceptionType = exceptionType;
+        this.executed = meterRegistry.counter("stackoverflow.singleflight.calls", "name", name, "result", "executed");
+        this.coalesced = meterRegistry.counter("stackoverflow.singleflight.calls", "name", name, "result", "coalesced");
+    }
+
+    /**
+     * Runs the call on the caller's thread, unless a call for the key is already running, in which case its result
+     * is waited for.
+     */
+    public V execute(final K key, final Call<V, E> call) throws E {
+        final CompletableFuture<V> flight = new CompletableFuture<>();
+        final CompletableFuture<V> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+        executed.increment();
+        try {
+            final V result = call.call();
+            flight.complete(result);
+            return result;
+        } catch (Exception | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private V await(final CompletableFuture<V> running) throws E {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return running.get();
+                } catch (InterruptedException e) {
+                    // the result is on its way, give it to the caller and keep the interrupt for later
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (exceptionType.isInstance(cause)) {
+                throw exceptionType.cast(cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * A read which may throw a checked exception of type E.
+     */
+    @FunctionalInterface
+    public interface Call<V, E extends Exception> {
+        V call() throws E;
+    }
+}
@@ -0,0 +1,61 @@
+package com.upgrad.stackoverflow.service.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TokenBucketLimiter is a lock-free token bucket per key: a key may take up to capacity permits at once and one
+ * more every period / capacity after that.
+ *
+ * Each bucket is a single AtomicLong holding the time at which the bucket will be full again (the generic cell rate
+ * algorithm), so taking a permit is one compare-and-set and a bucket costs a few dozen bytes. Buckets live in a
+ * size-bounded cache; a bucket untouched for a whole period is full again and is dropped, and when there are more
+ * keys than the bound the least valuable ones are evicted, which at worst gives their next request a full bucket.
+ */
+public class TokenBucketLimiter {
+
+    private final long emissionIntervalNanos;
+
+    private final long capacityNanos;
+
+    private final Cache<String, AtomicLong> buckets;
+
+    /**
+     * @param capacity    permits a key may take at once.
+     * @param period      time in which an empty bucket refills completely.
+     * @param maximumKeys number of keys tracked at most.
+     */
+    public TokenBucketLimiter(final int capacity, final Duration period, final long maximumKeys) {
+        this.emissionIntervalNanos = Math.max(1, period.toNanos() / Math.max(1, capacity));
+        this.capacityNanos = emissionIntervalNanos * Math.max(1, capacity);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterAccess(capacityNanos, TimeUnit.NANOSECONDS)
+                .build();
+    }
+
+    /**
+     * Takes a permit for the key if one is available.
+     *
+     * @return 0 if a permit was taken, otherwise the nanoseconds until the next permit is available.
+     */
+    public long tryAcquire(final String key) {
+        final AtomicLong bucket = buckets.get(key, k -> new AtomicLong(System.nanoTime()));
+        final long now = System.nanoTime();
+        while (true) {
+            final long fullAt = bucket.get();
+            final long nextFullAt = (fullAt - now > 0 ? fullAt : now) + emissionIntervalNanos;
+            final long overdraft = nextFullAt - now - capacityNanos;
+            if (overdraft > 0) {
+                return overdraft;
+            }
+            if (bucket.compareAndSet(fullAt, nextFullAt)) {
+                return 0;
+            }
+        }
+    }
+}
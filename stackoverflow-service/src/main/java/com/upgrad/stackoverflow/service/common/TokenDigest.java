@@ -0,0 +1,29 @@
+package com.upgrad.stackoverflow.service.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * TokenDigest computes the fixed-size SHA-256 digest of an access token, which is used wherever a token
+ * needs to be stored or compared without keeping the full token string around.
+ */
+public final class TokenDigest {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private TokenDigest() {
+    }
+
+    /**
+     * @param accessToken JWT access token.
+     * @return 32 bytes long SHA-256 digest of the UTF-8 encoded token.
+     */
+    public static byte[] of(final String accessToken) {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM).digest(accessToken.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e);
+        }
+    }
+}
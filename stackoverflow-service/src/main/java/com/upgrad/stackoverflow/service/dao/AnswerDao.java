@@ -1,14 +1,18 @@
 package com.upgrad.stackoverflow.service.dao;
 
 
+import com.upgrad.stackoverflow.service.common.PageCursor;
 import com.upgrad.stackoverflow.service.entity.AnswerEntity;
 import com.upgrad.stackoverflow.service.entity.QuestionEntity;
+import com.upgrad.stackoverflow.service.projection.AnswerSummary;
+import com.upgrad.stackoverflow.service.projection.QuestionSummary;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import java.util.List;
 
 /**
  * AnswerDao class provides the database access for all the endpoints in answer controller.
@@ -51,11 +55,45 @@ public class AnswerDao {
         return answerEntity;
     }
 
-    public TypedQuery<AnswerEntity> getAnswersByQuestion(QuestionEntity questionEntity) {
+    public QuestionSummary getQuestionSummaryByUuid(String uuid) {
         try {
-            return entityManager.createNamedQuery("getAllAnswersByQuestion", AnswerEntity.class).setParameter("question", questionEntity);
+            return entityManager.createNamedQuery("questionSummaryByUuid", QuestionSummary.class).setParameter("uuid", uuid).getSingleResult();
         } catch (NoResultException nre) {
             return null;
         }
     }
+
+    /**
+     * @return id and date of the question, number of its answers, highest answer id and latest answer date, the
+     * values which change whenever the question is edited or one of its answers is added, edited or removed, or null
+     * if there is no such question.
+     */
+    public Object[] getAnswersByQuestionVersion(String questionUuid) {
+        try {
+            return entityManager.createNamedQuery("answersByQuestionVersion", Object[].class).setParameter("uuid", questionUuid).getSingleResult();
+        } catch (NoResultException nre) {
+            return null;
+        }
+    }
+
+    public List<AnswerSummary> getAnswersByQuestion(Integer questionId) {
+        return entityManager.createNamedQuery("getAllAnswersByQuestion", AnswerSummary.class).setParameter("questionId", questionId).getResultList();
+    }
+
+    /**
+     * Returns a page of the answers to a question, oldest first. The next page starts after the (date, id) of the last
+     * answer of this one, so every page is a range scan of ANSWER_QUESTION_ID_DATE_ID_IDX however deep the client pages.
+     *
+     * @param after position after which answers are returned, null for the first page.
+     */
+    public List<AnswerSummary> getAnswers(Integer questionId, PageCursor after, int limit) {
+        final TypedQuery<AnswerSummary> query;
+        if (after == null) {
+            query = entityManager.createNamedQuery("answersPage", AnswerSummary.class);
+        } else {
+            query = entityManager.createNamedQuery("answersPageAfter", AnswerSummary.class)
+                    .setParameter("date", after.getDate()).setParameter("id", after.getId());
+        }
+        return query.setParameter("questionId", questionId).setMaxResults(limit).getResultList();
+    }
 }
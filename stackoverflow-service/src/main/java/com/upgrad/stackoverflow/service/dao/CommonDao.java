@@ -23,4 +23,17 @@ public class CommonDao {
             return null;
         }
     }
+
+    /**
+     * Reads only the id of a user and the columns of its profile, without loading the entity.
+     *
+     * @return [id, username, first name, last name, email, dob, country, about me, contact number], null if there is no such user.
+     */
+    public Object[] getUserProfileByUuid(String uuid) {
+        try {
+            return entityManager.createNamedQuery("userProfileByUuid", Object[].class).setParameter("uuid", uuid).getSingleResult();
+        } catch (NoResultException nre) {
+            return null;
+        }
+    }
 }
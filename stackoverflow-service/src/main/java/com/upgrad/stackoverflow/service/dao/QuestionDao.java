@@ -1,19 +1,26 @@
 package com.upgrad.stackoverflow.service.dao;
 
+import com.upgrad.stackoverflow.service.common.PageCursor;
 import com.upgrad.stackoverflow.service.entity.QuestionEntity;
-import com.upgrad.stackoverflow.service.entity.UserEntity;
+import com.upgrad.stackoverflow.service.projection.QuestionSummary;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * QuestionDao class provides the database access for all the endpoints in question controller.
  */
 @Repository
 public class QuestionDao {
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
     @PersistenceContext
     private EntityManager entityManager;
 
@@ -23,11 +30,33 @@ public class QuestionDao {
     }
 
 
-    public TypedQuery<QuestionEntity> getQuestions() {
-        try {
-            return entityManager.createNamedQuery("getAllQuestions", QuestionEntity.class);
-        } catch (NoResultException nre) {
-            return null;
+    /**
+     * Returns a page of questions, newest first. The next page starts after the (date, id) of the last question of
+     * this one, so every page is a range scan of QUESTION_DATE_ID_IDX however deep the client pages.
+     *
+     * @param after position after which questions are returned, null for the first page.
+     */
+    public List<QuestionSummary> getQuestions(PageCursor after, int limit) {
+        final TypedQuery<QuestionSummary> query;
+        if (after == null) {
+            query = entityManager.createNamedQuery("questionsPage", QuestionSummary.class);
+        } else {
+            query = entityManager.createNamedQuery("questionsPageAfter", QuestionSummary.class)
+                    .setParameter("date", after.getDate()).setParameter("id", after.getId());
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Streams every question, oldest first.
+     * Must be called inside a transaction, the rows are read through a forward-only database cursor and are never
+     * added to the persistence context, so memory does not grow with the table.
+     */
+    public void forEachQuestion(Consumer<QuestionSummary> consumer) {
+        try (Stream<QuestionSummary> questions = entityManager.createNamedQuery("exportQuestions", QuestionSummary.class)
+                .setHint(QueryHints.FETCH_SIZE, EXPORT_FETCH_SIZE)
+                .getResultStream()) {
+            questions.forEach(consumer);
         }
     }
 
@@ -48,17 +77,21 @@ public class QuestionDao {
         return questionEntity;
     }
 
-    public TypedQuery<QuestionEntity> getQuestionsByUser(UserEntity userEntity) {
-        try {
-            return entityManager.createNamedQuery("getAllQuestionsByUser", QuestionEntity.class).setParameter("user", userEntity);
-        } catch (NoResultException nre) {
-            return null;
-        }
+    public List<QuestionSummary> getQuestionsByUser(Integer userId) {
+        return entityManager.createNamedQuery("getAllQuestionsByUser", QuestionSummary.class).setParameter("userId", userId).getResultList();
+    }
+
+    /**
+     * @return number of questions of the user, highest question id and latest question date, the values which change
+     * whenever a question of the user is added, edited or removed.
+     */
+    public Object[] getQuestionsByUserVersion(Integer userId) {
+        return entityManager.createNamedQuery("questionsByUserVersion", Object[].class).setParameter("userId", userId).getSingleResult();
     }
 
-    public UserEntity getUserByUuid(String Uuid) {
+    public Integer getUserIdByUuid(String Uuid) {
         try {
-            return entityManager.createNamedQuery("userByUuid", UserEntity.class).setParameter("uuid", Uuid).getSingleResult();
+            return entityManager.createNamedQuery("userIdByUuid", Integer.class).setParameter("uuid", Uuid).getSingleResult();
         } catch (NoResultException nre) {
             return null;
         }
@@ -0,0 +1,223 @@
+package com.upgrad.stackoverflow.service.dao;
+
+import com.upgrad.stackoverflow.service.common.BloomFilter;
+import com.upgrad.stackoverflow.service.common.TokenDigest;
+import com.upgrad.stackoverflow.service.entity.UserEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * RevokedTokenFilter is an in-process Bloom filter over the digests of signed-out access tokens which have not expired yet.
+ *
+ * It lets stateless authorization answer "definitely not signed out" without a database query; only tokens the filter
+ * reports as possibly revoked are checked against USER_AUTH. The filter is loaded at startup and updated by signouts on
+ * this node. Revocations made on other nodes are picked up by a poll every poll-interval for sessions signed out and
+ * tokens revoked since the previous poll, so a signout on another node is rejected here at most poll-interval plus the
+ * duration of one poll after it commits. Each poll looks back poll-overlap further than the previous one to catch
+ * transactions which commit late or run on a node whose clock is behind; a revocation which commits more than
+ * poll-overlap after its timestamp is only picked up by the next rebuild, every rebuild-interval. The periodic rebuild
+ * otherwise only lets expired entries drop out.
+ * Tokens of deleted users, whose USER_AUTH rows are deleted with them, are kept in REVOKED_ACCESS_TOKEN until they expire.
+ * Its memory use is fixed by the configured capacity; a filter that fills up ahead of schedule is rebuilt early.
+ */
+@Component
+public class RevokedTokenFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RevokedTokenFilter.class);
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final int capacity;
+
+    private final double falsePositiveProbability;
+
+    private final boolean enabled;
+
+    private final Duration pollOverlap;
+
+    private final Counter negativeChecks;
+
+    private final Counter positiveChecks;
+
+    private volatile BloomFilter current;
+
+    private volatile BloomFilter building;
+
+    private volatile boolean overCapacity;
+
+    private ZonedDateTime polledUntil;
+
+    public RevokedTokenFilter(@Value("${stackoverflow.auth.stateless.enabled:false}") final boolean enabled,
+                              @Value("${stackoverflow.auth.revoked-token-filter.capacity:100000}") final int capacity,
+                              @Value("${stackoverflow.auth.revoked-token-filter.false-positive-probability:0.001}") final double falsePositiveProbability,
+                              @Value("${stackoverflow.auth.revoked-token-filter.poll-overlap:PT1M}") final Duration pollOverlap,
+                              final MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.pollOverlap = pollOverlap;
+        this.capacity = capacity;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.current = new BloomFilter(capacity, falsePositiveProbability);
+        this.negativeChecks = meterRegistry.counter("stackoverflow.auth.revoked.filter.checks", "result", "negative");
+        this.positiveChecks = meterRegistry.counter("stackoverflow.auth.revoked.filter.checks", "result", "positive");
+    }
+
+    /**
+     * @return false if the token has definitely not been signed out, true if it may have been.
+     */
+    public boolean mightBeRevoked(final String accessToken) {
+        final boolean positive = current.mightContain(TokenDigest.of(accessToken));
+        (positive ? positiveChecks : negativeChecks).increment();
+        return positive;
+    }
+
+    /**
+     * Records a signed-out token. The token is added again once the surrounding transaction completes, so that it
+     * is not lost if a rebuild read USER_AUTH before the signout was committed.
+     */
+    public void revoke(final String accessToken) {
+        revoke(TokenDigest.of(accessToken));
+    }
+
+    private void revoke(final byte[] digest) {
+        add(digest);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    add(digest);
+                }
+            });
+        }
+        if (current.isSaturated() && !overCapacity) {
+            LOGGER.warn("Revoked token filter holds more than {} tokens, rebuilding it early", capacity);
+            rebuild();
+        }
+    }
+
+    /**
+     * Records the digests of the tokens of every session a user has just been signed out of.
+     */
+    public void revokeDigests(final List<byte[]> digests) {
+        for (byte[] digest : digests) {
+            revoke(digest);
+        }
+    }
+
+    /**
+     * Records every unexpired token of a user who is about to be deleted. Deleting the user removes its USER_AUTH rows,
+     * so the tokens are written to REVOKED_ACCESS_TOKEN in the same transaction, where the rebuild on every node finds
+     * them until they expire. The filter of this node is only updated once the deletion commits, so a deletion which
+     * is rolled back revokes nothing.
+     */
+    public void revokeDeletedUser(final UserEntity userEntity) {
+        final List<byte[]> digests = userDao.revokeAccessTokensByUser(userEntity, ZonedDateTime.now());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    digests.forEach(RevokedTokenFilter.this::add);
+                }
+            });
+        } else {
+            digests.forEach(this::add);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stackoverflow.auth.revoked-token-filter.rebuild-interval:PT10M}",
+            initialDelayString = "${stackoverflow.auth.revoked-token-filter.rebuild-interval:PT10M}")
+    public void scheduledRebuild() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stackoverflow.auth.revoked-token-filter.poll-interval:PT5S}",
+            initialDelayString = "${stackoverflow.auth.revoked-token-filter.poll-interval:PT5S}")
+    public void scheduledPoll() {
+        if (enabled) {
+            poll();
+        }
+    }
+
+    /**
+     * Adds the tokens signed out or revoked with their user since the previous poll or rebuild, less poll-overlap, to
+     * the current filter. Tokens the filter already reports as possibly revoked are not added again, so that the
+     * overlap between polls does not count towards the capacity.
+     */
+    public synchronized void poll() {
+        if (polledUntil == null) {
+            return;
+        }
+        final ZonedDateTime now = ZonedDateTime.now();
+        final BloomFilter filter = current;
+        transactionTemplate.executeWithoutResult(status ->
+                userDao.forEachAccessTokenDigestRevokedSince(polledUntil.minus(pollOverlap), now, digest -> {
+                    if (!filter.mightContain(digest)) {
+                        filter.put(digest);
+                    }
+                }));
+        polledUntil = now;
+        if (filter.isSaturated() && !overCapacity) {
+            LOGGER.warn("Revoked token filter holds more than {} tokens, rebuilding it early", capacity);
+            rebuild();
+        }
+    }
+
+    /**
+     * Builds a fresh filter from the signed-out tokens in USER_AUTH and the tokens in REVOKED_ACCESS_TOKEN which have
+     * not expired yet and swaps it in. The next poll picks up from the time the rebuild started.
+     * Signouts which happen while the filter is being built go into both the old and the new filter.
+     */
+    public synchronized void rebuild() {
+        final BloomFilter next = new BloomFilter(capacity, falsePositiveProbability);
+        final ZonedDateTime now = ZonedDateTime.now();
+        building = next;
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    userDao.forEachRevokedAccessTokenDigest(now, next::put));
+            current = next;
+            polledUntil = now;
+            overCapacity = next.isSaturated();
+            LOGGER.info("Revoked token filter rebuilt with {} tokens", next.getInsertions());
+            if (overCapacity) {
+                LOGGER.warn("Revoked token filter capacity of {} is exceeded, false positive rate will be higher than configured", capacity);
+            }
+        } finally {
+            building = null;
+        }
+    }
+
+    private void add(final byte[] digest) {
+        current.put(digest);
+        final BloomFilter next = building;
+        if (next != null) {
+            next.put(digest);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.upgrad.stackoverflow.service.dao;
+
+import com.upgrad.stackoverflow.service.common.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * SignupIdentityFilter is an in-process Bloom filter over the usernames and emails of all users.
+ *
+ * It lets signup answer "definitely new" for an identity without a database query; only identities the filter
+ * reports as possibly taken are checked against USERS. The filter is loaded at startup, updated by signups on this
+ * node, and rebuilt periodically so that users created on other nodes are picked up and deleted users drop out.
+ * Until the first load has finished every identity is reported as possibly taken. A user created on another node
+ * since the last rebuild is still caught by the unique constraints of USERS.
+ */
+@Component
+public class SignupIdentityFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SignupIdentityFilter.class);
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final int capacity;
+
+    private final double falsePositiveProbability;
+
+    private final Counter negativeChecks;
+
+    private final Counter positiveChecks;
+
+    private volatile BloomFilter current;
+
+    private volatile BloomFilter building;
+
+    public SignupIdentityFilter(@Value("${stackoverflow.auth.signup-identity-filter.capacity:1000000}") final int capacity,
+                                @Value("${stackoverflow.auth.signup-identity-filter.false-positive-probability:0.01}") final double falsePositiveProbability,
+                                final MeterRegistry meterRegistry) {
+        this.capacity = capacity;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.negativeChecks = meterRegistry.counter("stackoverflow.auth.signup.filter.checks", "result", "negative");
+        this.positiveChecks = meterRegistry.counter("stackoverflow.auth.signup.filter.checks", "result", "positive");
+    }
+
+    /**
+     * @return false if neither the username nor the email is taken, true if either may be.
+     */
+    public boolean mightBeTaken(final String username, final String email) {
+        final BloomFilter filter = current;
+        final boolean positive = filter == null
+                || filter.mightContain(usernameKey(username)) || filter.mightContain(emailKey(email));
+        (positive ? positiveChecks : negativeChecks).increment();
+        return positive;
+    }
+
+    /**
+     * Records the identity of a user which has been created.
+     */
+    public void add(final String username, final String email) {
+        final BloomFilter filter = current;
+        if (filter != null) {
+            put(filter, username, email);
+        }
+        final BloomFilter next = building;
+        if (next != null) {
+            put(next, username, email);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${stackoverflow.auth.signup-identity-filter.rebuild-interval:PT1H}",
+            initialDelayString = "${stackoverflow.auth.signup-identity-filter.rebuild-interval:PT1H}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Builds a fresh filter from the usernames and emails in USERS and swaps it in.
+     * Signups which happen while the filter is being built go into both the old and the new filter.
+     */
+    public synchronized void rebuild() {
+        final BloomFilter next = new BloomFilter(2 * capacity, falsePositiveProbability);
+        building = next;
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    userDao.forEachUserIdentity((username, email) -> put(next, username, email)));
+            current = next;
+            LOGGER.info("Signup identity filter rebuilt with {} users", next.getInsertions() / 2);
+            if (next.isSaturated()) {
+                LOGGER.warn("Signup identity filter capacity of {} users is exceeded, more signups will query USERS than configured", capacity);
+            }
+        } finally {
+            building = null;
+        }
+    }
+
+    private static void put(final BloomFilter filter, final String username, final String email) {
+        filter.put(usernameKey(username));
+        filter.put(emailKey(email));
+    }
+
+    private static byte[] usernameKey(final String username) {
+        return ("u:" + username).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] emailKey(final String email) {
+        return ("e:" + email).getBytes(StandardCharsets.UTF_8);
+    }
+}
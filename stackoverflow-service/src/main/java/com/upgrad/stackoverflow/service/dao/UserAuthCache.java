@@ -0,0 +1,120 @@
+package com.upgrad.stackoverflow.service.dao;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.upgrad.stackoverflow.service.projection.UserAuthSession;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * UserAuthCache keeps recently resolved sessions in memory, keyed by access token, so that the
+ * authorization lookup done at the start of every business method does not cost a database round trip.
+ * The cache is bounded in size and an entry never outlives the EXPIRES_AT of the session it holds.
+ * A signout drops the session from the cache of the node which handles it before the signout returns. The caches of
+ * the other nodes are not told; they keep the session for at most time-to-live, which is therefore the longest a
+ * signed-out token can still be accepted by another node. The default of 5s keeps that lag in the same range as the
+ * revoked token filter poll while still absorbing the bursts of requests a client makes with one token.
+ * Hit, miss and eviction counters are published under the "userAuthCache" cache name.
+ */
+@Component
+public class UserAuthCache {
+
+    private final Cache<String, UserAuthSession> cache;
+
+    private final long timeToLiveNanos;
+
+    public UserAuthCache(@Value("${stackoverflow.auth.session-cache.maximum-size:10000}") final long maximumSize,
+                         @Value("${stackoverflow.auth.session-cache.time-to-live:5s}") final Duration timeToLive,
+                         final MeterRegistry meterRegistry) {
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new SessionExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userAuthCache");
+    }
+
+    public UserAuthSession get(final String accessToken) {
+        return accessToken == null ? null : cache.getIfPresent(accessToken);
+    }
+
+    /**
+     * Caches the session unless it has already expired, in which case every lookup keeps going to the database.
+     */
+    public void put(final String accessToken, final UserAuthSession session) {
+        if (accessToken != null && remainingNanos(session) > 0) {
+            cache.put(accessToken, session);
+        }
+    }
+
+    /**
+     * Drops the session immediately and once more when the surrounding transaction completes, so that a
+     * concurrent lookup cannot re-populate the cache with the row as it was before the transaction committed.
+     */
+    public void invalidate(final String accessToken) {
+        if (accessToken == null) {
+            return;
+        }
+        cache.invalidate(accessToken);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(accessToken);
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops every cached session that belongs to the given user, e.g. when the user is deleted or signs out of all
+     * sessions, immediately and once more when the surrounding transaction completes.
+     */
+    public void invalidateUser(final Integer userId) {
+        cache.asMap().values().removeIf(session -> userId.equals(session.getUserId()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.asMap().values().removeIf(session -> userId.equals(session.getUserId()));
+                }
+            });
+        }
+    }
+
+    private long remainingNanos(final UserAuthSession session) {
+        final ZonedDateTime expiresAt = session.getExpiresAt();
+        if (expiresAt == null) {
+            return timeToLiveNanos;
+        }
+        final long untilExpiry = Duration.between(ZonedDateTime.now(), expiresAt).toNanos();
+        return Math.min(timeToLiveNanos, untilExpiry);
+    }
+
+    private class SessionExpiry implements Expiry<String, UserAuthSession> {
+
+        @Override
+        public long expireAfterCreate(String key, UserAuthSession value, long currentTime) {
+            return Math.max(0, remainingNanos(value));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, UserAuthSession value, long currentTime, long currentDuration) {
+            return Math.max(0, remainingNanos(value));
+        }
+
+        @Override
+        public long expireAfterRead(String key, UserAuthSession value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.upgrad.stackoverflow.service.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * UserAuthPartitionMaintainer keeps the monthly partitions of a partitioned USER_AUTH table in shape, see
+ * stackoverflow_user_auth_partitioned.sql. Partitions for the coming months are created ahead of time so that signins
+ * always have a partition to go to, and partitions whose sessions all logged in before the retention window are dropped
+ * as a whole instead of deleting their rows one by one.
+ *
+ * The retention has to be longer than the lifetime of an access token, otherwise live sessions would be dropped.
+ */
+@Component
+public class UserAuthPartitionMaintainer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserAuthPartitionMaintainer.class);
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${stackoverflow.auth.partitioning.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stackoverflow.auth.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${stackoverflow.auth.partitioning.retention:30d}")
+    private Duration retention;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            maintain();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stackoverflow.auth.partitioning.maintenance-interval:PT6H}",
+            initialDelayString = "${stackoverflow.auth.partitioning.maintenance-interval:PT6H}")
+    public void scheduledMaintain() {
+        if (enabled) {
+            maintain();
+        }
+    }
+
+    /**
+     * Creates the missing partitions for the current and the coming months and drops the partitions past retention.
+     */
+    public void maintain() {
+        final int created = transactionTemplate.execute(status -> userDao.createUserAuthPartitions(monthsAhead));
+        final int dropped = transactionTemplate.execute(status -> userDao.dropUserAuthPartitions(ZonedDateTime.now().minus(retention)));
+        LOGGER.info("Created {} and dropped {} USER_AUTH partitions", created, dropped);
+    }
+}
@@ -0,0 +1,122 @@
+package com.upgrad.stackoverflow.service.dao;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.function.IntSupplier;
+
+/**
+ * UserAuthReaper periodically purges USER_AUTH rows which can no longer be used: sessions past their EXPIRES_AT and
+ * sessions signed out longer ago than the retention window.
+ *
+ * Rows are deleted in bounded batches, each in its own short transaction, with a pause between batches so that the
+ * reaper never holds locks for long or competes with signins for I/O. Rows removed are counted in total and per run.
+ *
+ * In stateless mode the revoked token filter is rebuilt from the signed-out rows, so those rows are kept until the
+ * token expires regardless of the retention window. When USER_AUTH is partitioned its old sessions are removed by
+ * dropping partitions in UserAuthPartitionMaintainer instead. Either way the reaper also purges the expired tokens of
+ * deleted users from REVOKED_ACCESS_TOKEN.
+ */
+@Component
+public class UserAuthReaper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserAuthReaper.class);
+
+    private static final ZonedDateTime EPOCH = Instant.EPOCH.atZone(ZoneId.systemDefault());
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${stackoverflow.auth.stateless.enabled:false}")
+    private boolean statelessEnabled;
+
+    @Value("${stackoverflow.auth.reaper.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stackoverflow.auth.partitioning.enabled:false}")
+    private boolean partitioningEnabled;
+
+    @Value("${stackoverflow.auth.reaper.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${stackoverflow.auth.reaper.max-batches-per-run:1000}")
+    private int maxBatchesPerRun;
+
+    @Value("${stackoverflow.auth.reaper.batch-pause:200ms}")
+    private Duration batchPause;
+
+    @Value("${stackoverflow.auth.reaper.logout-retention:1d}")
+    private Duration logoutRetention;
+
+    private final Counter rowsRemoved;
+
+    private final DistributionSummary rowsRemovedPerRun;
+
+    public UserAuthReaper(final MeterRegistry meterRegistry) {
+        this.rowsRemoved = meterRegistry.counter("stackoverflow.auth.reaper.rows.removed");
+        this.rowsRemovedPerRun = DistributionSummary.builder("stackoverflow.auth.reaper.run.rows.removed")
+                .description("USER_AUTH rows removed by one run of the reaper")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${stackoverflow.auth.reaper.interval:PT15M}",
+            initialDelayString = "${stackoverflow.auth.reaper.interval:PT15M}")
+    public void scheduledReap() {
+        if (enabled) {
+            reap();
+        }
+    }
+
+    /**
+     * Runs one reaping pass.
+     *
+     * @return the number of USER_AUTH rows removed.
+     */
+    public int reap() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        int removed = 0;
+        if (!partitioningEnabled) {
+            final ZonedDateTime logoutCutoff = statelessEnabled ? EPOCH : now.minus(logoutRetention);
+            removed = deleteInBatches(() -> userDao.deleteStaleUserAuths(now, logoutCutoff, batchSize));
+            rowsRemoved.increment(removed);
+            rowsRemovedPerRun.record(removed);
+            LOGGER.info("Removed {} expired or signed out sessions from USER_AUTH", removed);
+        }
+        final int revokedRemoved = deleteInBatches(() -> userDao.deleteExpiredRevokedAccessTokens(now, batchSize));
+        LOGGER.info("Removed {} expired tokens of deleted users from REVOKED_ACCESS_TOKEN", revokedRemoved);
+        return removed;
+    }
+
+    private int deleteInBatches(final IntSupplier deleteBatch) {
+        int removed = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            final Integer deleted = transactionTemplate.execute(status -> deleteBatch.getAsInt());
+            removed += deleted;
+            if (deleted < batchSize) {
+                break;
+            }
+            try {
+                Thread.sleep(batchPause.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return removed;
+    }
+}
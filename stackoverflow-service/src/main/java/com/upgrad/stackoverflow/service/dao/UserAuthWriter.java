@@ -0,0 +1,218 @@
+package com.upgrad.stackoverflow.service.dao;
+
+import com.upgrad.stackoverflow.service.entity.UserAuthEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * UserAuthWriter persists new sessions behind the signin request instead of inside it.
+ *
+ * Signins put their USER_AUTH row on a bounded queue and return the token right away; a background thread writes the
+ * queued rows with JDBC batch inserts. When the queue is full the caller writes the row itself, so a burst slows
+ * signins down instead of growing memory. The queue is flushed when the application shuts down.
+ *
+ * Write-behind is only allowed in stateless mode, where a token is authorized by its signature and not by its row.
+ * A row lost in a crash therefore never locks a user out. If such a token is signed out later, the row is restored from
+ * the claims of the token, see AuthenticationBusinessService.restoreUserAuth.
+ */
+@Component
+public class UserAuthWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserAuthWriter.class);
+
+    // the digest is only unique by index on an unpartitioned USER_AUTH, so a row already written for the token, e.g. by
+    // a signout which restored it, is skipped explicitly
+    private static final String INSERT_USER_AUTH = "INSERT INTO USER_AUTH (UUID, USER_ID, ACCESS_TOKEN, ACCESS_TOKEN_DIGEST, EXPIRES_AT, LOGIN_AT, LOGOUT_AT) "
+            + "SELECT ?, ?, ?, ?, CAST(? AS TIMESTAMP), CAST(? AS TIMESTAMP), CAST(? AS TIMESTAMP) "
+            + "WHERE NOT EXISTS (SELECT 1 FROM USER_AUTH WHERE ACCESS_TOKEN_DIGEST = ?) ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final boolean enabled;
+
+    private final boolean statelessEnabled;
+
+    private final int batchSize;
+
+    private final long flushIntervalMillis;
+
+    private final BlockingQueue<UserAuthEntity> queue;
+
+    private final Set<String> pendingAccessTokens = ConcurrentHashMap.newKeySet();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final Counter rowsWritten;
+
+    private final Counter rowsFailed;
+
+    private final Counter queueFull;
+
+    private volatile boolean running;
+
+    private Thread writerThread;
+
+    public UserAuthWriter(final JdbcTemplate jdbcTemplate,
+                          @Value("${stackoverflow.auth.write-behind.enabled:false}") final boolean enabled,
+                          @Value("${stackoverflow.auth.stateless.enabled:false}") final boolean statelessEnabled,
+                          @Value("${stackoverflow.auth.write-behind.queue-capacity:10000}") final int queueCapacity,
+                          @Value("${stackoverflow.auth.write-behind.batch-size:500}") final int batchSize,
+                          @Value("${stackoverflow.auth.write-behind.flush-interval:50ms}") final Duration flushInterval,
+                          final MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.statelessEnabled = statelessEnabled;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushInterval.toMillis();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.rowsWritten = meterRegistry.counter("stackoverflow.auth.write-behind.rows", "result", "written");
+        this.rowsFailed = meterRegistry.counter("stackoverflow.auth.write-behind.rows", "result", "failed");
+        this.queueFull = meterRegistry.counter("stackoverflow.auth.write-behind.queue.full");
+        meterRegistry.gaugeCollectionSize("stackoverflow.auth.write-behind.queue.size", Collections.emptyList(), queue);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (!statelessEnabled) {
+            throw new IllegalStateException("Write-behind of sessions requires stackoverflow.auth.stateless.enabled");
+        }
+        running = true;
+        writerThread = new Thread(this::run, "user-auth-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a new session for writing.
+     *
+     * @return false if write-behind is disabled, stopped or the queue is full; the caller has to persist the row itself.
+     */
+    public boolean enqueue(final UserAuthEntity userAuthEntity) {
+        if (!running) {
+            return false;
+        }
+        pendingAccessTokens.add(userAuthEntity.getAccessToken());
+        if (!queue.offer(userAuthEntity)) {
+            pendingAccessTokens.remove(userAuthEntity.getAccessToken());
+            queueFull.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the session of the token is queued and not written yet.
+     */
+    public boolean isPending(final String accessToken) {
+        return accessToken != null && pendingAccessTokens.contains(accessToken);
+    }
+
+    /**
+     * Writes every queued session on the calling thread.
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            final List<UserAuthEntity> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                write(batch);
+                batch.clear();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        writerThread.interrupt();
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        flush();
+        LOGGER.info("Session write-behind queue flushed on shutdown");
+    }
+
+    private void run() {
+        final List<UserAuthEntity> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                final UserAuthEntity first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                writeLock.lock();
+                try {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    write(batch);
+                } finally {
+                    batch.clear();
+                    writeLock.unlock();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.error("Session write-behind failed", e);
+            }
+        }
+    }
+
+    private void write(final List<UserAuthEntity> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_USER_AUTH, batch, batch.size(), (ps, userAuthEntity) -> {
+                ps.setString(1, userAuthEntity.getUuid());
+                ps.setInt(2, userAuthEntity.getUser().getId());
+                ps.setString(3, userAuthEntity.getAccessToken());
+                ps.setBytes(4, userAuthEntity.getAccessTokenDigest());
+                ps.setTimestamp(5, toTimestamp(userAuthEntity.getExpiresAt()));
+                ps.setTimestamp(6, toTimestamp(userAuthEntity.getLoginAt()));
+                ps.setTimestamp(7, toTimestamp(userAuthEntity.getLogoutAt()));
+                ps.setBytes(8, userAuthEntity.getAccessTokenDigest());
+            });
+            rowsWritten.increment(batch.size());
+        } catch (RuntimeException e) {
+            // the tokens stay valid by their signature, a session whose row is lost is restored when it signs out
+            rowsFailed.increment(batch.size());
+            LOGGER.error("Could not write {} sessions to USER_AUTH", batch.size(), e);
+        } finally {
+            for (UserAuthEntity userAuthEntity : batch) {
+                pendingAccessTokens.remove(userAuthEntity.getAccessToken());
+            }
+        }
+    }
+
+    private static Timestamp toTimestamp(final ZonedDateTime dateTime) {
+        return dateTime == null ? null : Timestamp.from(dateTime.toInstant());
+    }
+}
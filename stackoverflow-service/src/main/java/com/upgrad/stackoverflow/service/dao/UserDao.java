@@ -1,12 +1,23 @@
 package com.upgrad.stackoverflow.service.dao;
 
+import com.upgrad.stackoverflow.service.common.TokenDigest;
 import com.upgrad.stackoverflow.service.entity.UserAuthEntity;
 import com.upgrad.stackoverflow.service.entity.UserEntity;
+import com.upgrad.stackoverflow.service.projection.UserAuthSession;
+import com.upgrad.stackoverflow.service.projection.UserSessionSummary;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * UserDao class provides the database access for all the endpoints in user controller.
@@ -23,12 +34,18 @@ public class UserDao {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private UserAuthCache userAuthCache;
 
     public UserEntity createUser(UserEntity userEntity) {
         entityManager.persist(userEntity);
         return userEntity;
     }
 
+    public UserEntity updateUser(UserEntity userEntity) {
+        return entityManager.merge(userEntity);
+    }
+
     public UserEntity getUserByUsername(String username) {
         try {
             return entityManager.createNamedQuery("userByUsername", UserEntity.class).setParameter("username", username).getSingleResult();
@@ -45,20 +62,212 @@ public class UserDao {
         }
     }
 
+    /**
+     * @return a reference to the user with the given id, without loading the user from the database.
+     */
+    public UserEntity getUserReference(Integer id) {
+        return entityManager.getReference(UserEntity.class, id);
+    }
+
+    /**
+     * @return the user with the given id, or null if there is no such user.
+     */
+    public UserEntity getUserById(Integer id) {
+        return entityManager.find(UserEntity.class, id);
+    }
+
     public UserAuthEntity createUserAuth(UserAuthEntity userAuthEntity) {
         entityManager.persist(userAuthEntity);
         return userAuthEntity;
     }
 
 
+    /**
+     * Returns the session of an access token. The digest is not unique on a partitioned USER_AUTH; if a token ever has
+     * more than one row, a signed-out one is returned.
+     */
     public UserAuthEntity getUserAuthByAccesstoken(String accesstoken) {
-        try {
-            return entityManager.createNamedQuery("userAuthByAccesstoken", UserAuthEntity.class).setParameter("accesstoken", accesstoken).getSingleResult();
-        } catch (NoResultException nre) {
-            return null;
+        return entityManager.createNamedQuery("userAuthByAccessTokenDigest", UserAuthEntity.class).setParameter("digest", TokenDigest.of(accesstoken))
+                .setMaxResults(1)
+                .getResultList().stream().findFirst().orElse(null);
+    }
+
+    /**
+     * Signs out the session of an access token with a single conditional UPDATE, so that of two concurrent signouts
+     * of the same token exactly one succeeds.
+     *
+     * @return the uuid of the user of the session, or null if there is no session for the token which is still signed in.
+     */
+    public String signOutUserAuth(String accesstoken, ZonedDateTime now) {
+        final List<?> userUuids = entityManager.createNativeQuery("UPDATE USER_AUTH SET LOGOUT_AT = :now WHERE ACCESS_TOKEN_DIGEST = :digest AND LOGOUT_AT IS NULL RETURNING UUID")
+                .setParameter("now", now.toLocalDateTime())
+                .setParameter("digest", TokenDigest.of(accesstoken))
+                .getResultList();
+        return userUuids.isEmpty() ? null : (String) userUuids.get(0);
+    }
+
+    /**
+     * Resolves the session of an access token for authorization, from the session cache or with a single query
+     * over USER_AUTH and USERS which selects only the columns authorization needs. Like getUserAuthByAccesstoken it
+     * prefers a signed-out row if the token has more than one.
+     */
+    public UserAuthSession getUserAuthSessionByAccessToken(String accessToken) {
+        UserAuthSession cached = userAuthCache.get(accessToken);
+        if (cached != null) {
+            return cached;
+        }
+        UserAuthSession session = entityManager.createNamedQuery("userAuthSessionByAccessTokenDigest", UserAuthSession.class).setParameter("digest", TokenDigest.of(accessToken))
+                .setMaxResults(1)
+                .getResultList().stream().findFirst().orElse(null);
+        if (session != null) {
+            userAuthCache.put(accessToken, session);
         }
+        return session;
+    }
+
+
+    /**
+     * Checks whether the username or the email of a new user is taken, with a single query.
+     *
+     * @return [username, email] of every user with the same username or email, at most two.
+     */
+    public List<Object[]> getUserIdentityConflicts(String username, String email) {
+        return entityManager.createNamedQuery("userIdentityConflicts", Object[].class).setParameter("username", username).setParameter("email", email).getResultList();
+    }
+
+    /**
+     * Streams the username and email of every user.
+     * Must be called inside a transaction, the rows are read through a database cursor.
+     */
+    public void forEachUserIdentity(BiConsumer<String, String> consumer) {
+        entityManager.createNamedQuery("userIdentities", Object[].class)
+                .setHint(QueryHints.FETCH_SIZE, 1000)
+                .getResultStream().forEach(identity -> consumer.accept((String) identity[0], (String) identity[1]));
     }
 
+    /**
+     * Streams the access token digests of all signed-out sessions and of all tokens revoked with their user which
+     * expire after the given time.
+     * Must be called inside a transaction, the rows are read through a database cursor.
+     */
+    public void forEachRevokedAccessTokenDigest(ZonedDateTime now, Consumer<byte[]> consumer) {
+        entityManager.createNamedQuery("revokedAccessTokenDigests", byte[].class).setParameter("now", now)
+                .setHint(QueryHints.FETCH_SIZE, 1000)
+                .getResultStream().forEach(consumer);
+        final Stream<?> revokedWithUser = entityManager.createNativeQuery("SELECT ACCESS_TOKEN_DIGEST FROM REVOKED_ACCESS_TOKEN WHERE EXPIRES_AT > :now")
+                .setParameter("now", now.toLocalDateTime())
+                .setHint(QueryHints.FETCH_SIZE, 1000)
+                .getResultStream();
+        revokedWithUser.forEach(digest -> consumer.accept((byte[]) digest));
+    }
+
+    /**
+     * Streams the access token digests of the sessions signed out and of the tokens revoked with their user after the
+     * given time which expire after now.
+     * Must be called inside a transaction, the rows are read through a database cursor.
+     */
+    public void forEachAccessTokenDigestRevokedSince(ZonedDateTime since, ZonedDateTime now, Consumer<byte[]> consumer) {
+        entityManager.createNamedQuery("accessTokenDigestsRevokedSince", byte[].class)
+                .setParameter("since", since).setParameter("now", now)
+                .setHint(QueryHints.FETCH_SIZE, 1000)
+                .getResultStream().forEach(consumer);
+        final Stream<?> revokedWithUser = entityManager.createNativeQuery("SELECT ACCESS_TOKEN_DIGEST FROM REVOKED_ACCESS_TOKEN WHERE REVOKED_AT > :since AND EXPIRES_AT > :now")
+                .setParameter("since", since.toLocalDateTime())
+                .setParameter("now", now.toLocalDateTime())
+                .setHint(QueryHints.FETCH_SIZE, 1000)
+                .getResultStream();
+        revokedWithUser.forEach(digest -> consumer.accept((byte[]) digest));
+    }
+
+    /**
+     * Copies every unexpired token of a user into REVOKED_ACCESS_TOKEN with a single INSERT ... SELECT, so that the
+     * revocation outlives the USER_AUTH rows of the user.
+     *
+     * @return the digests of the tokens revoked.
+     */
+    public List<byte[]> revokeAccessTokensByUser(UserEntity userEntity, ZonedDateTime now) {
+        final List<?> digests = entityManager.createNativeQuery("INSERT INTO REVOKED_ACCESS_TOKEN(ACCESS_TOKEN_DIGEST, EXPIRES_AT, REVOKED_AT) SELECT ACCESS_TOKEN_DIGEST, EXPIRES_AT, :now FROM USER_AUTH WHERE USER_ID = :userId AND EXPIRES_AT > :now ON CONFLICT (ACCESS_TOKEN_DIGEST) DO NOTHING RETURNING ACCESS_TOKEN_DIGEST")
+                .setParameter("userId", userEntity.getId())
+                .setParameter("now", now.toLocalDateTime())
+                .getResultList();
+        return digests.stream().map(digest -> (byte[]) digest).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns a page of the active sessions of a user, newest first. The next page starts before the id of the last
+     * session of this one, so every page is an index range scan however deep the user pages.
+     *
+     * @param before id below which sessions are returned, null for the first page.
+     */
+    public List<UserSessionSummary> getActiveUserSessions(UserEntity userEntity, ZonedDateTime now, Integer before, int limit) {
+        return entityManager.createNamedQuery("activeUserSessionsByUser", UserSessionSummary.class)
+                .setParameter("user", userEntity).setParameter("now", now)
+                .setParameter("before", before == null ? Integer.MAX_VALUE : before)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Signs out every active session of a user with a single UPDATE, which also returns the digests of the tokens it
+     * signed out, so that no session committed concurrently is signed out without being reported.
+     *
+     * @return the access token digests of the sessions signed out.
+     */
+    public List<byte[]> signOutUserAuths(UserEntity userEntity, ZonedDateTime now) {
+        final List<?> digests = entityManager.createNativeQuery("UPDATE USER_AUTH SET LOGOUT_AT = :now WHERE USER_ID = :userId AND LOGOUT_AT IS NULL AND EXPIRES_AT > :now RETURNING ACCESS_TOKEN_DIGEST")
+                .setParameter("now", now.toLocalDateTime())
+                .setParameter("userId", userEntity.getId())
+                .getResultList();
+        return digests.stream().map(digest -> (byte[]) digest).collect(Collectors.toList());
+    }
+
+    /**
+     * Deletes at most batchSize sessions which have expired or were signed out before the logout cutoff.
+     * Rows locked by a concurrent reaper on another node are skipped rather than waited for.
+     *
+     * @return the number of rows deleted.
+     */
+    public int deleteStaleUserAuths(ZonedDateTime now, ZonedDateTime logoutCutoff, int batchSize) {
+        return entityManager.createNativeQuery("DELETE FROM USER_AUTH WHERE ID IN (SELECT ID FROM USER_AUTH WHERE EXPIRES_AT < :now OR LOGOUT_AT < :logoutCutoff LIMIT :batchSize FOR UPDATE SKIP LOCKED)")
+                .setParameter("now", now.toLocalDateTime())
+                .setParameter("logoutCutoff", logoutCutoff.toLocalDateTime())
+                .setParameter("batchSize", batchSize)
+                .executeUpdate();
+    }
+
+    /**
+     * Deletes at most batchSize revoked tokens which have expired.
+     *
+     * @return the number of rows deleted.
+     */
+    public int deleteExpiredRevokedAccessTokens(ZonedDateTime now, int batchSize) {
+        return entityManager.createNativeQuery("DELETE FROM REVOKED_ACCESS_TOKEN WHERE ACCESS_TOKEN_DIGEST IN (SELECT ACCESS_TOKEN_DIGEST FROM REVOKED_ACCESS_TOKEN WHERE EXPIRES_AT < :now LIMIT :batchSize FOR UPDATE SKIP LOCKED)")
+                .setParameter("now", now.toLocalDateTime())
+                .setParameter("batchSize", batchSize)
+                .executeUpdate();
+    }
+
+    /**
+     * Creates the monthly USER_AUTH partitions which are missing up to monthsAhead months from now.
+     *
+     * @return the number of partitions created.
+     */
+    public int createUserAuthPartitions(int monthsAhead) {
+        return ((Number) entityManager.createNativeQuery("SELECT USER_AUTH_CREATE_PARTITIONS(:monthsAhead)")
+                .setParameter("monthsAhead", monthsAhead)
+                .getSingleResult()).intValue();
+    }
+
+    /**
+     * Drops the monthly USER_AUTH partitions which only hold sessions logged in before the cutoff.
+     *
+     * @return the number of partitions dropped.
+     */
+    public int dropUserAuthPartitions(ZonedDateTime cutoff) {
+        return ((Number) entityManager.createNativeQuery("SELECT USER_AUTH_DROP_PARTITIONS(:cutoff)")
+                .setParameter("cutoff", cutoff.toLocalDateTime())
+                .getSingleResult()).intValue();
+    }
 
     public UserAuthEntity updateUserAuth(UserAuthEntity userAuthEntity) {
         return entityManager.merge(userAuthEntity);
@@ -14,7 +14,9 @@ import java.time.ZonedDateTime;
  */
 @NamedQueries({
         @NamedQuery(name = "answerByUuid", query = "select a from AnswerEntity a where a.uuid= :uuid"),
-        @NamedQuery(name = "getAllAnswersByQuestion", query = "select a from AnswerEntity a where a.question = :question")
+        @NamedQuery(name = "getAllAnswersByQuestion", query = "select new com.upgrad.stackoverflow.service.projection.AnswerSummary(a.id, a.uuid, a.ans, a.date) from AnswerEntity a where a.question.id = :questionId"),
+        @NamedQuery(name = "answersPage", query = "select new com.upgrad.stackoverflow.service.projection.AnswerSummary(a.id, a.uuid, a.ans, a.date) from AnswerEntity a where a.question.id = :questionId order by a.date, a.id"),
+        @NamedQuery(name = "answersPageAfter", query = "select new com.upgrad.stackoverflow.service.projection.AnswerSummary(a.id, a.uuid, a.ans, a.date) from AnswerEntity a where a.question.id = :questionId and a.date >= :date and (a.date > :date or a.id > :id) order by a.date, a.id")
 })
 @Entity
 @Table(name = "ANSWER")
@@ -16,10 +16,15 @@ import java.time.ZonedDateTime;
 @Table(name = "question")
 @NamedQueries(
         {
-                @NamedQuery(name = "getAllQuestions", query = "select q from QuestionEntity q"),
+                @NamedQuery(name = "questionsPage", query = "select new com.upgrad.stackoverflow.service.projection.QuestionSummary(q.id, q.uuid, q.content, q.date) from QuestionEntity q order by q.date desc, q.id desc"),
+                @NamedQuery(name = "questionsPageAfter", query = "select new com.upgrad.stackoverflow.service.projection.QuestionSummary(q.id, q.uuid, q.content, q.date) from QuestionEntity q where q.date <= :date and (q.date < :date or q.id < :id) order by q.date desc, q.id desc"),
+                @NamedQuery(name = "exportQuestions", query = "select new com.upgrad.stackoverflow.service.projection.QuestionSummary(q.id, q.uuid, q.content, q.date) from QuestionEntity q order by q.id"),
                 @NamedQuery(name = "questionByUuid", query = "select q from QuestionEntity q where q.uuid =:uuid"),
+                @NamedQuery(name = "questionSummaryByUuid", query = "select new com.upgrad.stackoverflow.service.projection.QuestionSummary(q.id, q.uuid, q.content, q.date) from QuestionEntity q where q.uuid = :uuid"),
                 @NamedQuery(name = "questionByid", query = "select q from QuestionEntity q where q.id =:id"),
-                @NamedQuery(name = "getAllQuestionsByUser", query = "select q from QuestionEntity q where q.user= :user")
+                @NamedQuery(name = "questionsByUserVersion", query = "select count(q.id), max(q.id), max(q.date) from QuestionEntity q where q.user.id = :userId"),
+                @NamedQuery(name = "answersByQuestionVersion", query = "select q.id, q.date, count(a.id), max(a.id), max(a.date) from QuestionEntity q left join AnswerEntity a on a.question.id = q.id where q.uuid = :uuid group by q.id, q.date"),
+                @NamedQuery(name = "getAllQuestionsByUser", query = "select new com.upgrad.stackoverflow.service.projection.QuestionSummary(q.id, q.uuid, q.content, q.date) from QuestionEntity q where q.user.id = :userId")
         }
 )
 public class QuestionEntity {
@@ -16,7 +16,11 @@ import java.time.ZonedDateTime;
 @Table(name = "user_auth")
 @NamedQueries({
         @NamedQuery(name = "userByuuid", query = "select u from UserAuthEntity u where u.uuid = :uuid"),
-        @NamedQuery(name = "userAuthByAccesstoken", query = "select u from UserAuthEntity u where u.accessToken = :accesstoken")
+        @NamedQuery(name = "userAuthByAccessTokenDigest", query = "select u from UserAuthEntity u where u.accessTokenDigest = :digest order by u.logoutAt desc nulls last"),
+        @NamedQuery(name = "userAuthSessionByAccessTokenDigest", query = "select new com.upgrad.stackoverflow.service.projection.UserAuthSession(s.id, s.uuid, s.role, u.expiresAt, u.logoutAt) from UserAuthEntity u join u.user s where u.accessTokenDigest = :digest order by u.logoutAt desc nulls last"),
+        @NamedQuery(name = "revokedAccessTokenDigests", query = "select u.accessTokenDigest from UserAuthEntity u where u.logoutAt is not null and u.expiresAt > :now"),
+        @NamedQuery(name = "accessTokenDigestsRevokedSince", query = "select u.accessTokenDigest from UserAuthEntity u where u.logoutAt > :since and u.expiresAt > :now"),
+        @NamedQuery(name = "activeUserSessionsByUser", query = "select new com.upgrad.stackoverflow.service.projection.UserSessionSummary(u.id, u.loginAt, u.expiresAt) from UserAuthEntity u where u.user = :user and u.logoutAt is null and u.expiresAt > :now and u.id < :before order by u.id desc")
 })
 public class UserAuthEntity {
 
@@ -30,7 +34,7 @@ public class UserAuthEntity {
     @NotNull
     private String uuid;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "USER_ID")
     @NotNull
@@ -41,6 +45,11 @@ public class UserAuthEntity {
     @Size(max = 500)
     private String accessToken;
 
+    @Column(name = "ACCESS_TOKEN_DIGEST")
+    @NotNull
+    @Size(min = 32, max = 32)
+    private byte[] accessTokenDigest;
+
     @Column(name = "EXPIRES_AT")
     @NotNull
     private ZonedDateTime expiresAt;
@@ -60,6 +69,14 @@ public class UserAuthEntity {
         this.accessToken = accessToken;
     }
 
+    public byte[] getAccessTokenDigest() {
+        return accessTokenDigest;
+    }
+
+    public void setAccessTokenDigest(byte[] accessTokenDigest) {
+        this.accessTokenDigest = accessTokenDigest;
+    }
+
     public ZonedDateTime getExpiresAt() {
         return expiresAt;
     }
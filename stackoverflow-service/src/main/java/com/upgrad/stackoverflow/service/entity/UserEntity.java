@@ -15,7 +15,11 @@ import javax.validation.constraints.Size;
 @NamedQueries({
         @NamedQuery(name = "userByUsername", query = "select u from UserEntity u where u.userName = :username"),
         @NamedQuery(name = "userByEmail", query = "select u from UserEntity u where u.email = :email"),
+        @NamedQuery(name = "userIdentityConflicts", query = "select u.userName, u.email from UserEntity u where u.userName = :username or u.email = :email"),
+        @NamedQuery(name = "userIdentities", query = "select u.userName, u.email from UserEntity u"),
         @NamedQuery(name = "userByUuid", query = "select u from UserEntity u where u.uuid =:uuid"),
+        @NamedQuery(name = "userIdByUuid", query = "select u.id from UserEntity u where u.uuid = :uuid"),
+        @NamedQuery(name = "userProfileByUuid", query = "select u.id, u.userName, u.firstName, u.lastName, u.email, u.dob, u.country, u.aboutMe, u.contactNumber from UserEntity u where u.uuid = :uuid"),
         @NamedQuery(name = "allUsers", query = "select u from UserEntity u where u.role = 'non admin'")
 })
 
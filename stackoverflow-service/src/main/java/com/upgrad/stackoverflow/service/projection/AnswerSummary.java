@@ -0,0 +1,41 @@
+package com.upgrad.stackoverflow.service.projection;
+
+import java.time.ZonedDateTime;
+
+/**
+ * AnswerSummary is the read-only view of an ANSWER row used by the answer listings. It is selected with a
+ * constructor expression, so it is never managed by the persistence context and never joins its question or user.
+ */
+public final class AnswerSummary {
+
+    private final Integer id;
+
+    private final String uuid;
+
+    private final String answer;
+
+    private final ZonedDateTime date;
+
+    public AnswerSummary(final Integer id, final String uuid, final String answer, final ZonedDateTime date) {
+        this.id = id;
+        this.uuid = uuid;
+        this.answer = answer;
+        this.date = date;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getAnswer() {
+        return answer;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+}
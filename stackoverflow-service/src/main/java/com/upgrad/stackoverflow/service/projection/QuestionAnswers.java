@@ -0,0 +1,26 @@
+package com.upgrad.stackoverflow.service.projection;
+
+import java.util.List;
+
+/**
+ * QuestionAnswers is a question together with its answers.
+ */
+public final class QuestionAnswers {
+
+    private final QuestionSummary question;
+
+    private final List<AnswerSummary> answers;
+
+    public QuestionAnswers(final QuestionSummary question, final List<AnswerSummary> answers) {
+        this.question = question;
+        this.answers = answers;
+    }
+
+    public QuestionSummary getQuestion() {
+        return question;
+    }
+
+    public List<AnswerSummary> getAnswers() {
+        return answers;
+    }
+}
@@ -0,0 +1,49 @@
+package com.upgrad.stackoverflow.service.projection;
+
+import java.util.List;
+
+/**
+ * QuestionAnswersPage is a question with one page of its answers, oldest first, the cursor of the next page and the
+ * entity tag of the question and the page.
+ */
+public final class QuestionAnswersPage {
+
+    private final QuestionSummary question;
+
+    private final List<AnswerSummary> answers;
+
+    private final String nextCursor;
+
+    private final String entityTag;
+
+    public QuestionAnswersPage(final QuestionSummary question, final List<AnswerSummary> answers, final String nextCursor,
+                               final String entityTag) {
+        this.question = question;
+        this.answers = answers;
+        this.nextCursor = nextCursor;
+        this.entityTag = entityTag;
+    }
+
+    public QuestionSummary getQuestion() {
+        return question;
+    }
+
+    public List<AnswerSummary> getAnswers() {
+        return answers;
+    }
+
+    /**
+     * @return cursor of the next page, null on the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return entity tag which changes whenever the question is edited or an answer of the page is added, edited or
+     * removed.
+     */
+    public String getEntityTag() {
+        return entityTag;
+    }
+}
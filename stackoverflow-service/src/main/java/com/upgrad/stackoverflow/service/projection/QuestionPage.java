@@ -0,0 +1,40 @@
+package com.upgrad.stackoverflow.service.projection;
+
+import java.util.List;
+
+/**
+ * QuestionPage is one page of questions, newest first, with the cursor of the next page and the entity tag of the
+ * page.
+ */
+public final class QuestionPage {
+
+    private final List<QuestionSummary> questions;
+
+    private final String nextCursor;
+
+    private final String entityTag;
+
+    public QuestionPage(final List<QuestionSummary> questions, final String nextCursor, final String entityTag) {
+        this.questions = questions;
+        this.nextCursor = nextCursor;
+        this.entityTag = entityTag;
+    }
+
+    public List<QuestionSummary> getQuestions() {
+        return questions;
+    }
+
+    /**
+     * @return cursor of the next page, null on the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return entity tag which changes whenever a question of the page is added, edited or removed.
+     */
+    public String getEntityTag() {
+        return entityTag;
+    }
+}
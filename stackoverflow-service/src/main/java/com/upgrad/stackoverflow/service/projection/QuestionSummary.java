@@ -0,0 +1,41 @@
+package com.upgrad.stackoverflow.service.projection;
+
+import java.time.ZonedDateTime;
+
+/**
+ * QuestionSummary is the read-only view of a QUESTION row used by the question listings. It is selected with a
+ * constructor expression, so it is never managed by the persistence context and never joins the user who posted it.
+ */
+public final class QuestionSummary {
+
+    private final Integer id;
+
+    private final String uuid;
+
+    private final String content;
+
+    private final ZonedDateTime date;
+
+    public QuestionSummary(final Integer id, final String uuid, final String content, final ZonedDateTime date) {
+        this.id = id;
+        this.uuid = uuid;
+        this.content = content;
+        this.date = date;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+}
@@ -0,0 +1,50 @@
+package com.upgrad.stackoverflow.service.projection;
+
+import java.time.ZonedDateTime;
+
+/**
+ * UserAuthSession is the read-only view of a USER_AUTH row which authorization needs: who the session belongs to and
+ * whether it is still usable. It is selected in a single statement, together with the few USERS columns it needs,
+ * without hydrating the full UserAuthEntity and UserEntity.
+ */
+public final class UserAuthSession {
+
+    private final Integer userId;
+
+    private final String userUuid;
+
+    private final String role;
+
+    private final ZonedDateTime expiresAt;
+
+    private final ZonedDateTime logoutAt;
+
+    public UserAuthSession(final Integer userId, final String userUuid, final String role,
+                           final ZonedDateTime expiresAt, final ZonedDateTime logoutAt) {
+        this.userId = userId;
+        this.userUuid = userUuid;
+        this.role = role;
+        this.expiresAt = expiresAt;
+        this.logoutAt = logoutAt;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public String getUserUuid() {
+        return userUuid;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public ZonedDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public ZonedDateTime getLogoutAt() {
+        return logoutAt;
+    }
+}
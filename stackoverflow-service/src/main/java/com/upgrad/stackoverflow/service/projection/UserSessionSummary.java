@@ -0,0 +1,34 @@
+package com.upgrad.stackoverflow.service.projection;
+
+import java.time.ZonedDateTime;
+
+/**
+ * UserSessionSummary is the read-only view of an active USER_AUTH row which is shown to the user it belongs to.
+ * It never carries the access token itself.
+ */
+public final class UserSessionSummary {
+
+    private final Integer id;
+
+    private final ZonedDateTime loginAt;
+
+    private final ZonedDateTime expiresAt;
+
+    public UserSessionSummary(final Integer id, final ZonedDateTime loginAt, final ZonedDateTime expiresAt) {
+        this.id = id;
+        this.loginAt = loginAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public ZonedDateTime getLoginAt() {
+        return loginAt;
+    }
+
+    public ZonedDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}